@@ -22,6 +22,8 @@ public interface FloatingPet {
 
     double getEntityHealth();
 
+    LiveSettings getSettings();
+
     String getSetting(Setting setting);
 
     boolean isSetting(Setting setting);
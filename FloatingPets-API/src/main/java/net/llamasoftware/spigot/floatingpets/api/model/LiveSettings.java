@@ -0,0 +1,45 @@
+package net.llamasoftware.spigot.floatingpets.api.model;
+
+/**
+ * The current {@link SettingsSnapshot}, shared by the plugin and every pet entity.
+ *
+ * Holders keep this object rather than a snapshot, so a reload is picked up by running pets
+ * and their goals without rebuilding them.
+ */
+public final class LiveSettings {
+
+    private volatile SettingsSnapshot snapshot;
+
+    public LiveSettings(SettingsSnapshot snapshot){
+        this.snapshot = snapshot;
+    }
+
+    public SettingsSnapshot getSnapshot(){
+        return snapshot;
+    }
+
+    public void update(SettingsSnapshot snapshot){
+        this.snapshot = snapshot;
+    }
+
+    public boolean isEnabled(Setting setting){
+        return snapshot.isEnabled(setting);
+    }
+
+    public String getString(Setting setting){
+        return snapshot.getString(setting);
+    }
+
+    public int getInt(Setting setting){
+        return snapshot.getInt(setting);
+    }
+
+    public long getLong(Setting setting){
+        return snapshot.getLong(setting);
+    }
+
+    public double getDouble(Setting setting){
+        return snapshot.getDouble(setting);
+    }
+
+}
@@ -19,6 +19,8 @@ public interface Pet {
 
     PetType getType();
 
+    void setType(PetType type);
+
     FloatingPet getEntity();
 
     void setEntity(FloatingPet pet);
@@ -2,7 +2,8 @@ package net.llamasoftware.spigot.floatingpets.api.model;
 
 import lombok.Getter;
 
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 public enum Setting {
@@ -10,9 +11,15 @@ public enum Setting {
     GENERAL_STORAGE_TYPE("storage.type"),
     METRICS("metrics.enabled"),
 
+    GENERAL_STORAGE_PRELOAD_LOCALE("storage.options.preload.locale"),
+    GENERAL_STORAGE_PRELOAD_TYPE("storage.options.preload.type"),
+    GENERAL_STORAGE_PRELOAD_PET("storage.options.preload.pet"),
+    GENERAL_STORAGE_PRELOAD_MISC("storage.options.preload.misc"),
+
     GENERAL_STORAGE_FLATFILE_PETS("storage.options.flatfile.files.pet"),
     GENERAL_STORAGE_FLATFILE_TYPE("storage.options.flatfile.files.type"),
     GENERAL_STORAGE_FLATFILE_MISC("storage.options.flatfile.files.misc"),
+    GENERAL_STORAGE_FLATFILE_PET_DIRECTORY("storage.options.flatfile.directories.pet"),
 
     GENERAL_STORAGE_MYSQL_PREFIX("storage.options.mysql.prefix"),
     GENERAL_STORAGE_MYSQL_SERVER("storage.options.mysql.server"),
@@ -21,6 +28,36 @@ public enum Setting {
     GENERAL_STORAGE_MYSQL_USERNAME("storage.options.mysql.username"),
     GENERAL_STORAGE_MYSQL_PASSWORD("storage.options.mysql.password"),
     GENERAL_STORAGE_MYSQL_MAXIMUM_POOLS("storage.options.mysql.max_pools"),
+    GENERAL_STORAGE_MYSQL_FETCH_SIZE("storage.options.mysql.fetch_size"),
+    GENERAL_STORAGE_MYSQL_MIGRATION_CHUNK_SIZE("storage.options.mysql.migration_chunk_size"),
+
+    GENERAL_STORAGE_SQLITE_FILE("storage.options.sqlite.file"),
+
+    GENERAL_STORAGE_BINARY_FILE("storage.options.binary.file"),
+    GENERAL_STORAGE_BINARY_CONVERT("storage.options.binary.convert_from"),
+
+    GENERAL_STORAGE_WRITE_BEHIND_INTERVAL("storage.options.write_behind.flush_interval"),
+    GENERAL_STORAGE_WRITE_BEHIND_BATCH_SIZE("storage.options.write_behind.batch_size"),
+    GENERAL_STORAGE_WRITE_BEHIND_QUEUE_SIZE("storage.options.write_behind.max_queue_size"),
+
+    GENERAL_STORAGE_LAZY_EVICTION_DELAY("storage.options.lazy.eviction_delay"),
+
+    GENERAL_STORAGE_METRICS_SLOW_THRESHOLD("storage.options.metrics.slow_threshold"),
+
+    GENERAL_STORAGE_SNAPSHOT_ENABLED("storage.options.snapshot.enabled"),
+    GENERAL_STORAGE_SNAPSHOT_FILE("storage.options.snapshot.file"),
+
+    GENERAL_STORAGE_MIGRATION_BATCH_SIZE("storage.options.migration.batch_size"),
+    GENERAL_STORAGE_MIGRATION_QUEUED_BATCHES("storage.options.migration.queued_batches"),
+
+    LOCALE_PER_PLAYER("locale.per_player"),
+    LOCALE_DEFAULT_LANGUAGE("locale.default_language"),
+    LOCALE_DIRECTORY("locale.directory"),
+
+    MENU_ASYNC_COMPOSITION("menus.async_composition"),
+    MENU_LOADING_THRESHOLD("menus.loading_threshold"),
+
+    PERMISSION_SNAPSHOT_TTL("permissions.snapshot_ttl"),
 
     PET_SPAWN_ON_JOIN("pet.spawn_on_join"),
     PET_HEALTH("pet.health.enabled"),
@@ -37,6 +74,8 @@ public enum Setting {
     PET_NAME_CUSTOM_MAXIMUM_LENGTH("pet.name.custom.max_length"),
     PET_NAME_FORMAT("pet.name.format"),
 
+    PET_CATEGORIES("pet.categories.enabled"),
+
     PET_COOLDOWN_SELECT("pet.cooldown.select.enabled"),
     PET_HIGHER("pet.higher_pet"),
 
@@ -89,6 +128,14 @@ public enum Setting {
 
     ;
 
+    private static final Map<String, Setting> BY_KEY = new HashMap<>();
+
+    static {
+        for (Setting setting : values()) {
+            BY_KEY.put(setting.key, setting);
+        }
+    }
+
     @Getter
     private final String key;
 
@@ -97,9 +144,7 @@ public enum Setting {
     }
 
     public static Optional<Setting> getSettingByKey(String key){
-        return Arrays.stream(Setting.values())
-                .filter(setting -> setting.getKey().equals(key))
-                .findAny();
+        return Optional.ofNullable(BY_KEY.get(key));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package net.llamasoftware.spigot.floatingpets.api.model;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Immutable, pre-parsed values of every {@link Setting}, stored in arrays indexed by the setting's ordinal.
+ *
+ * Reading a setting is a single array access, no path lookup or parsing. A reload builds a new
+ * snapshot and swaps it in at once, so readers never see a mix of old and new values.
+ */
+public final class SettingsSnapshot {
+
+    private final String[] strings;
+    private final boolean[] booleans;
+    private final long[] longs;
+    private final double[] doubles;
+
+    private SettingsSnapshot(int size){
+        this.strings  = new String[size];
+        this.booleans = new boolean[size];
+        this.longs    = new long[size];
+        this.doubles  = new double[size];
+    }
+
+    /**
+     * Reads every setting from the given section, usually the "settings" section of the configuration.
+     */
+    public static SettingsSnapshot load(ConfigurationSection section){
+        Setting[] settings = Setting.values();
+        SettingsSnapshot snapshot = new SettingsSnapshot(settings.length);
+
+        for (Setting setting : settings) {
+            int index = setting.ordinal();
+            Object value = section == null ? null : section.get(setting.getKey());
+
+            snapshot.strings[index]  = value == null ? null : String.valueOf(value);
+            snapshot.booleans[index] = value instanceof Boolean && (Boolean) value;
+
+            if(value instanceof Number){
+                snapshot.longs[index]   = ((Number) value).longValue();
+                snapshot.doubles[index] = ((Number) value).doubleValue();
+            } else if(value instanceof String){
+                try {
+                    snapshot.doubles[index] = Double.parseDouble((String) value);
+                    snapshot.longs[index]   = (long) snapshot.doubles[index];
+                } catch (NumberFormatException ignored) { }
+            }
+        }
+
+        // Healing has no effect while health is disabled.
+        snapshot.booleans[Setting.PET_HEALING.ordinal()] &= snapshot.booleans[Setting.PET_HEALTH.ordinal()];
+
+        return snapshot;
+    }
+
+    public boolean isEnabled(Setting setting){
+        return booleans[setting.ordinal()];
+    }
+
+    public String getString(Setting setting){
+        return strings[setting.ordinal()];
+    }
+
+    public long getLong(Setting setting){
+        return longs[setting.ordinal()];
+    }
+
+    public int getInt(Setting setting){
+        return (int) longs[setting.ordinal()];
+    }
+
+    public double getDouble(Setting setting){
+        return doubles[setting.ordinal()];
+    }
+
+}
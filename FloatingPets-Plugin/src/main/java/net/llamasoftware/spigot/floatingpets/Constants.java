@@ -7,6 +7,8 @@ public final class Constants {
 
     public static final String STORAGE_TYPE_FLATFILE = "flatfile";
     public static final String STORAGE_TYPE_MYSQL = "mysql";
+    public static final String STORAGE_TYPE_BINARY = "binary";
+    public static final String STORAGE_TYPE_SQLITE = "sqlite";
 
     public static final String INFO_MESSAGE_PREFIX = ":- ";
 
@@ -3,8 +3,9 @@ package net.llamasoftware.spigot.floatingpets;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import lombok.Getter;
-import net.llamasoftware.spigot.floatingpets.api.model.Pet;
+import net.llamasoftware.spigot.floatingpets.api.model.LiveSettings;
 import net.llamasoftware.spigot.floatingpets.api.model.Setting;
+import net.llamasoftware.spigot.floatingpets.api.model.SettingsSnapshot;
 import net.llamasoftware.spigot.floatingpets.command.BaseCommandExecutor;
 import net.llamasoftware.spigot.floatingpets.command.Command;
 import net.llamasoftware.spigot.floatingpets.command.subcommand.*;
@@ -19,17 +20,21 @@ import net.llamasoftware.spigot.floatingpets.listener.PlayerListener;
 import net.llamasoftware.spigot.floatingpets.listener.VehicleListener;
 import net.llamasoftware.spigot.floatingpets.locale.Locale;
 import net.llamasoftware.spigot.floatingpets.manager.command.CommandManager;
+import net.llamasoftware.spigot.floatingpets.manager.config.ConfigReloader;
 import net.llamasoftware.spigot.floatingpets.manager.config.SettingManager;
 import net.llamasoftware.spigot.floatingpets.manager.config.YAMLManager;
 import net.llamasoftware.spigot.floatingpets.manager.cooldown.CooldownManager;
 import net.llamasoftware.spigot.floatingpets.manager.menu.MenuManager;
 import net.llamasoftware.spigot.floatingpets.manager.metrics.DagaMetrics;
+import net.llamasoftware.spigot.floatingpets.manager.metrics.StorageMetrics;
+import net.llamasoftware.spigot.floatingpets.manager.permission.PermissionManager;
 import net.llamasoftware.spigot.floatingpets.manager.pet.PetManager;
 import net.llamasoftware.spigot.floatingpets.manager.sql.MySQLManager;
 import net.llamasoftware.spigot.floatingpets.manager.storage.StorageManager;
+import net.llamasoftware.spigot.floatingpets.manager.storage.impl.BinaryStorageManager;
 import net.llamasoftware.spigot.floatingpets.manager.storage.impl.FlatfileStorageManager;
 import net.llamasoftware.spigot.floatingpets.manager.storage.impl.SQLStorageManager;
-import net.llamasoftware.spigot.floatingpets.model.config.ConfigDefinition;
+import net.llamasoftware.spigot.floatingpets.manager.world.WorldPolicyManager;
 import net.llamasoftware.spigot.floatingpets.model.config.YAMLFile;
 import net.llamasoftware.spigot.floatingpets.util.Utility;
 import net.milkbowl.vault.economy.Economy;
@@ -42,6 +47,7 @@ import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.RegisteredServiceProvider;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -50,6 +56,7 @@ public final class FloatingPets extends JavaPlugin {
     @Getter private final CommandManager commandManager;
     @Getter private StorageManager storageManager;
     @Getter private MySQLManager mySqlManager;
+    @Getter private StorageMetrics storageMetrics;
     @Getter private Locale locale;
 
     @Getter private final YAMLManager yamlManager;
@@ -62,7 +69,10 @@ public final class FloatingPets extends JavaPlugin {
     @Getter private final NMSHelper nmsHelper;
     @Getter private final RegistrationHelper registrationHelper;
     @Getter private final MenuManager menuManager;
-    @Getter private ConfigDefinition configDefinition;
+    @Getter private final PermissionManager permissionManager;
+    @Getter private final ConfigReloader configReloader;
+    @Getter private final WorldPolicyManager worldPolicyManager;
+    @Getter private final LiveSettings settings;
     @Getter private Economy economy;
 
     @Getter
@@ -74,6 +84,7 @@ public final class FloatingPets extends JavaPlugin {
     private final BaseCommandExecutor defaultExecutor;
 
     public FloatingPets(){
+        settings           = new LiveSettings(loadSettings());
         commandManager     = new CommandManager(this);
         yamlManager        = new YAMLManager(this);
         nmsHelper          = new NMSHelper();
@@ -84,6 +95,9 @@ public final class FloatingPets extends JavaPlugin {
         petManager         = new PetManager(this);
         defaultExecutor    = new BaseCommandExecutor(this);
         menuManager        = new MenuManager(this);
+        permissionManager  = new PermissionManager(this);
+        configReloader     = new ConfigReloader(this);
+        worldPolicyManager = new WorldPolicyManager(this);
         gson               = new GsonBuilder().create();
     }
 
@@ -103,8 +117,6 @@ public final class FloatingPets extends JavaPlugin {
 
         registerListeners();
 
-        configDefinition = new ConfigDefinition(this, getConfig());
-
         if(isSetting(Setting.PET_RIDING)) {
             Plugin protocolLibPlugin = getServer().getPluginManager().getPlugin("ProtocolLib");
             if(protocolLibPlugin == null) {
@@ -129,7 +141,7 @@ public final class FloatingPets extends JavaPlugin {
         sendInfoMessage(String.format("FloatingPets v%s successfully loaded (%d ms).",
                 getDescription().getVersion(), System.currentTimeMillis() - profileStart));
 
-        Bukkit.getScheduler().scheduleSyncDelayedTask(this, this::spawnStoredPets, 5L);
+        storageManager.getReady().thenRun(this::spawnStoredPets);
 
     }
 
@@ -137,34 +149,64 @@ public final class FloatingPets extends JavaPlugin {
         sendInfoMessage("Enabling storage");
 
         defaultLocaleFile = yamlManager.loadIfNotExists("locale.yml");
+        storageMetrics    = new StorageMetrics(getLogger(),
+                getLongSetting(Setting.GENERAL_STORAGE_METRICS_SLOW_THRESHOLD));
+
+        storageManager = createStorageManager(getStringSetting(Setting.GENERAL_STORAGE_TYPE));
+
+        if(storageManager instanceof SQLStorageManager)
+            mySqlManager = ((SQLStorageManager) storageManager).getMySqlManager();
 
-        if(getStringSetting(Setting.GENERAL_STORAGE_TYPE)
-                .equalsIgnoreCase(Constants.STORAGE_TYPE_MYSQL)){
+        storageManager.load();
+    }
 
-            mySqlManager = new MySQLManager(
-                    getStringSetting(Setting.GENERAL_STORAGE_MYSQL_SERVER),
-                    Integer.parseInt(getStringSetting(Setting.GENERAL_STORAGE_MYSQL_PORT)),
-                    getStringSetting(Setting.GENERAL_STORAGE_MYSQL_DATABASE),
-                    getStringSetting(Setting.GENERAL_STORAGE_MYSQL_USERNAME),
-                    getStringSetting(Setting.GENERAL_STORAGE_MYSQL_PASSWORD),
-                    Integer.parseInt(getStringSetting(Setting.GENERAL_STORAGE_MYSQL_MAXIMUM_POOLS)),
-                    getLogger());
+    /**
+     * Creates a storage of the given type, or null if the type is unknown. It is not loaded yet.
+     */
+    public StorageManager createStorageManager(String type){
+        if(type.equalsIgnoreCase(Constants.STORAGE_TYPE_MYSQL))
+            return new SQLStorageManager(this, createMySQLManager());
 
-            storageManager = new SQLStorageManager(this, mySqlManager);
+        if(type.equalsIgnoreCase(Constants.STORAGE_TYPE_FLATFILE))
+            return new FlatfileStorageManager(this);
 
-        } else if (getStringSetting(Setting.GENERAL_STORAGE_TYPE)
-                .equalsIgnoreCase(Constants.STORAGE_TYPE_FLATFILE)){
+        if(type.equalsIgnoreCase(Constants.STORAGE_TYPE_BINARY))
+            return new BinaryStorageManager(this);
 
-            storageManager = new FlatfileStorageManager(this);
+        if(type.equalsIgnoreCase(Constants.STORAGE_TYPE_SQLITE)){
+            return new SQLStorageManager(this, new MySQLManager(
+                    new File(getDataFolder(), getStringSetting(Setting.GENERAL_STORAGE_SQLITE_FILE)),
+                    getIntSetting(Setting.GENERAL_STORAGE_MYSQL_FETCH_SIZE),
+                    storageMetrics, getLogger()));
         }
 
-        storageManager.load();
+        return null;
+    }
+
+    public MySQLManager createMySQLManager(){
+        return new MySQLManager(
+                getStringSetting(Setting.GENERAL_STORAGE_MYSQL_SERVER),
+                getIntSetting(Setting.GENERAL_STORAGE_MYSQL_PORT),
+                getStringSetting(Setting.GENERAL_STORAGE_MYSQL_DATABASE),
+                getStringSetting(Setting.GENERAL_STORAGE_MYSQL_USERNAME),
+                getStringSetting(Setting.GENERAL_STORAGE_MYSQL_PASSWORD),
+                getIntSetting(Setting.GENERAL_STORAGE_MYSQL_MAXIMUM_POOLS),
+                getIntSetting(Setting.GENERAL_STORAGE_MYSQL_FETCH_SIZE),
+                storageMetrics, getLogger());
     }
 
     @Override
     public void onDisable() {
         nmsHelper.getNmsManager().killPets();
         petManager.despawnPets();
+
+        if(storageManager != null) {
+            storageManager.shutdown();
+            storageManager.writeSnapshot();
+        }
+
+        if(mySqlManager != null)
+            mySqlManager.close();
     }
 
     private void registerListeners() {
@@ -199,6 +241,7 @@ public final class FloatingPets extends JavaPlugin {
                 new CommandRemoveAll(this),
                 new CommandAdmin(this),
                 new CommandReload(this),
+                new CommandSearch(this),
                 new CommandParticle(this)).forEach(commandManager::registerCommand);
 
         registerCommand(new CommandName(this), Setting.PET_NAME_CUSTOM);
@@ -216,24 +259,37 @@ public final class FloatingPets extends JavaPlugin {
         getLogger().info(Constants.INFO_MESSAGE_PREFIX + message);
     }
 
-    private void spawnStoredPets() {
-        Bukkit.getOnlinePlayers().forEach(player -> {
-            List<Pet> pets = getStorageManager().getPetsByOwner(player.getUniqueId());
-            pets.forEach(pet -> petManager.spawnPet(pet,
-                    player.getLocation(), player, true));
-        });
+    public void spawnStoredPets() {
+        Bukkit.getOnlinePlayers().forEach(player -> getStorageManager().loadPets(player.getUniqueId())
+                .thenAccept(pets -> pets.forEach(pet -> petManager.spawnPet(pet,
+                        player.getLocation(), player, true))));
     }
 
-    public Map<Setting, String> getSettingsMap(){
-        Map<Setting, String> settingMap = new HashMap<>();
-        Arrays.stream(Setting.values())
-                .forEach(setting -> settingMap.put(setting, getStringSetting(setting)));
+    public boolean isPreload(StorageManager.Type type){
+        switch (type){
+            case LOCALE:
+                return isSetting(Setting.GENERAL_STORAGE_PRELOAD_LOCALE);
+            case TYPE:
+                return isSetting(Setting.GENERAL_STORAGE_PRELOAD_TYPE);
+            case PET:
+                return isSetting(Setting.GENERAL_STORAGE_PRELOAD_PET);
+            default:
+                return isSetting(Setting.GENERAL_STORAGE_PRELOAD_MISC);
+        }
+    }
 
-        return settingMap;
+    /**
+     * Reads the configuration file again, swaps in a new settings snapshot and rebuilds what is derived from it.
+     */
+    public void reloadSettings(){
+        reloadConfig();
+        settings.update(loadSettings());
+        settingManager.reload();
+        worldPolicyManager.invalidate();
     }
 
-    public boolean isPreload(StorageManager.Type type){
-        return isSetting("storage.options.preload." + type.name().toLowerCase());
+    private SettingsSnapshot loadSettings(){
+        return SettingsSnapshot.load(getConfig().getConfigurationSection("settings"));
     }
 
     private void registerListener(Listener listener){
@@ -241,21 +297,13 @@ public final class FloatingPets extends JavaPlugin {
     }
 
     public boolean isSetting(Setting setting){
-        return isSetting(setting.getKey());
+        return settings.isEnabled(setting);
     }
 
     public boolean isSetting(String key){
-        Optional<Setting> setting = Setting.getSettingByKey(key);
-
-        if(setting.isPresent()) {
-            if (setting.get() == Setting.PET_HEALING) {
-                if(!isSetting(Setting.PET_HEALTH)){
-                    return false;
-                }
-            }
-        }
-
-        return getSetting(key);
+        return Setting.getSettingByKey(key)
+                .map(this::isSetting)
+                .orElseGet(() -> getSetting(key));
     }
 
     public void hookExternal(){
@@ -286,7 +334,13 @@ public final class FloatingPets extends JavaPlugin {
 
     public Boolean getSetting(String key){ return getConfig().getBoolean("settings." + key); }
 
-    public String getStringSetting(Setting setting){ return getConfig().getString("settings." + setting.getKey()); }
+    public String getStringSetting(Setting setting){ return settings.getString(setting); }
+
+    public int getIntSetting(Setting setting){ return settings.getInt(setting); }
+
+    public long getLongSetting(Setting setting){ return settings.getLong(setting); }
+
+    public double getDoubleSetting(Setting setting){ return settings.getDouble(setting); }
 
     public boolean isEconomy() {
         return economy != null;
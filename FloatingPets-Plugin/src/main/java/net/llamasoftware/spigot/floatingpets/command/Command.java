@@ -8,7 +8,7 @@ import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
-import java.util.LinkedList;
+import java.util.List;
 
 public abstract class Command {
 
@@ -26,7 +26,7 @@ public abstract class Command {
     public void handleCommand(CommandSender sender, String[] arguments){
         if (sender instanceof Player && getDeclaration().petContext()) {
             Player player = (Player) sender;
-            LinkedList<Pet> pets = getDeclaration().activePets() ?
+            List<Pet> pets = getDeclaration().activePets() ?
                     plugin.getPetManager().getPetsByOwner(player) :
                     plugin.getStorageManager().getPetsByOwner(player.getUniqueId());
 
@@ -4,22 +4,32 @@ import net.llamasoftware.spigot.floatingpets.FloatingPets;
 import net.llamasoftware.spigot.floatingpets.api.model.Pet;
 import net.llamasoftware.spigot.floatingpets.api.model.PetCategory;
 import net.llamasoftware.spigot.floatingpets.api.model.PetType;
+import net.llamasoftware.spigot.floatingpets.api.model.Setting;
 import net.llamasoftware.spigot.floatingpets.command.Command;
 import net.llamasoftware.spigot.floatingpets.command.CommandInfo;
 import net.llamasoftware.spigot.floatingpets.locale.Locale;
+import net.llamasoftware.spigot.floatingpets.manager.metrics.StorageMetrics;
 import net.llamasoftware.spigot.floatingpets.manager.storage.StorageManager;
+import net.llamasoftware.spigot.floatingpets.manager.storage.migration.StorageMigration;
+import net.llamasoftware.spigot.floatingpets.manager.storage.queue.WriteBehindQueue;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.entity.Player;
 
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 @CommandInfo(name = "admin", list = false, petContext = false)
 public class CommandAdmin extends Command {
 
+    private StorageMigration migration;
+
     public CommandAdmin(FloatingPets plugin) {
         super(plugin);
     }
@@ -28,9 +38,8 @@ public class CommandAdmin extends Command {
     public void onCommand(CommandSender sender, String[] arguments) {
 
         if(arguments.length == 0){
-            List<String> msgList = plugin.getStorageManager().getLocaleListByKey("commands.admin.help");
-            for (String s : msgList) {
-                sender.sendMessage(locale.color(s));
+            for (String s : locale.getTextList(sender, "commands.admin.help")) {
+                sender.sendMessage(s);
             }
             return;
         }
@@ -111,23 +120,26 @@ public class CommandAdmin extends Command {
                 OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(arguments[1]);
                 UUID uniqueId = offlinePlayer.getUniqueId();
 
-                Optional<Pet> pet = plugin.getStorageManager()
-                        .getPetsByOwner(uniqueId)
-                            .stream()
+                StorageManager storageManager = plugin.getStorageManager();
+                storageManager.loadPets(uniqueId).thenAccept(pets -> {
+                    Optional<Pet> pet = pets.stream()
                             .filter(p -> p.getType().getName().equalsIgnoreCase(arguments[2]))
                             .findFirst();
 
-                if(!pet.isPresent()) {
-                    locale.send(sender, "commands.admin.remove.invalid", false);
-                    return;
-                }
+                    if(!pet.isPresent()) {
+                        locale.send(sender, "commands.admin.remove.invalid", false);
+                    } else {
+                        plugin.getPetManager().despawnPet(pet.get());
+                        storageManager.updatePet(pet.get(), StorageManager.Action.REMOVE);
 
-                plugin.getPetManager().despawnPet(pet.get());
-                plugin.getStorageManager().updatePet(pet.get(), StorageManager.Action.REMOVE);
+                        locale.send(sender, "commands.admin.remove.removed", true,
+                                new Locale.Placeholder("player", offlinePlayer.getName()),
+                                new Locale.Placeholder("type", pet.get().getType().getName()));
+                    }
 
-                locale.send(sender, "commands.admin.remove.removed", true,
-                        new Locale.Placeholder("player", offlinePlayer.getName()),
-                        new Locale.Placeholder("type", pet.get().getType().getName()));
+                    if(!offlinePlayer.isOnline())
+                        storageManager.scheduleEviction(uniqueId);
+                });
                 break;
             }
 
@@ -152,6 +164,7 @@ public class CommandAdmin extends Command {
                     plugin.getStorageManager().selectPet(player, type.get());
                 } else {
                     plugin.getStorageManager().createPet(type.get(), offlinePlayer);
+                    plugin.getStorageManager().scheduleEviction(offlinePlayer.getUniqueId());
                 }
 
                 locale.send(sender, "commands.admin.give.given", true,
@@ -162,10 +175,176 @@ public class CommandAdmin extends Command {
 
             }
 
+            case "storage":{
+                WriteBehindQueue queue = plugin.getStorageManager().getWriteQueue();
+
+                locale.send(sender, "commands.admin.storage.queue", true,
+                        new Locale.Placeholder("pending", String.valueOf(queue.getPendingCount())),
+                        new Locale.Placeholder("capacity", String.valueOf(queue.getCapacity())),
+                        new Locale.Placeholder("peak", String.valueOf(queue.getHighWaterMark())));
+                locale.send(sender, "commands.admin.storage.writes", true,
+                        new Locale.Placeholder("enqueued", String.valueOf(queue.getEnqueued())),
+                        new Locale.Placeholder("coalesced", String.valueOf(queue.getCoalesced())),
+                        new Locale.Placeholder("written", String.valueOf(queue.getWritten())),
+                        new Locale.Placeholder("batches", String.valueOf(queue.getBatches())));
+                locale.send(sender, "commands.admin.storage.pressure", true,
+                        new Locale.Placeholder("back_pressure", String.valueOf(queue.getBackPressure())),
+                        new Locale.Placeholder("failures", String.valueOf(queue.getFailures())),
+                        new Locale.Placeholder("discarded", String.valueOf(queue.getDiscarded())),
+                        new Locale.Placeholder("last_flush", String.valueOf(queue.getLastFlushMillis())));
+                break;
+            }
+
+            case "metrics":{
+                StorageMetrics metrics = plugin.getStorageMetrics();
+                Map<String, Integer> pool = plugin.getMySqlManager() == null
+                        ? Collections.emptyMap() : plugin.getMySqlManager().getPoolStats();
+
+                if(arguments.length == 2 && arguments[1].equalsIgnoreCase("reset")){
+                    metrics.reset();
+                    locale.send(sender, "commands.admin.metrics.reset", true);
+                    return;
+                }
+
+                if(arguments.length == 2 && arguments[1].equalsIgnoreCase("dump")){
+                    File file = new File(plugin.getDataFolder(), "metrics.json");
+                    try {
+                        metrics.dump(file, pool);
+                        locale.send(sender, "commands.admin.metrics.dumped", true,
+                                new Locale.Placeholder("file", file.getName()));
+                    } catch (IOException ex){
+                        plugin.getLogger().warning("Unable to write storage metrics to " + file.getName());
+                        ex.printStackTrace();
+                        locale.send(sender, "commands.admin.metrics.dump_failed", false);
+                    }
+                    return;
+                }
+
+                if(arguments.length != 1){
+                    locale.send(sender, "commands.admin.metrics.syntax", false);
+                    return;
+                }
+
+                if(metrics.getOperations().isEmpty())
+                    locale.send(sender, "commands.admin.metrics.empty", true);
+
+                metrics.getOperations().forEach((name, stats) ->
+                        locale.send(sender, "commands.admin.metrics.operation", true,
+                                new Locale.Placeholder("operation", name),
+                                new Locale.Placeholder("count", String.valueOf(stats.getCount())),
+                                new Locale.Placeholder("errors", String.valueOf(stats.getErrors())),
+                                new Locale.Placeholder("avg", String.format("%.2f", stats.getAverageMillis())),
+                                new Locale.Placeholder("p95", String.format("%.2f", stats.getPercentileMillis(95))),
+                                new Locale.Placeholder("max", String.format("%.2f", stats.getMaxMillis()))));
+
+                if(!pool.isEmpty()){
+                    locale.send(sender, "commands.admin.metrics.pool", true,
+                            new Locale.Placeholder("active", String.valueOf(pool.get("active"))),
+                            new Locale.Placeholder("idle", String.valueOf(pool.get("idle"))),
+                            new Locale.Placeholder("total", String.valueOf(pool.get("total"))),
+                            new Locale.Placeholder("waiting", String.valueOf(pool.get("waiting"))));
+                }
+                break;
+            }
+
+            case "migrate":{
+                if(arguments.length < 3 || arguments.length > 4
+                        || (arguments.length == 4 && !arguments[3].equalsIgnoreCase("offline"))){
+                    locale.send(sender, "commands.admin.migrate.syntax", false);
+                    return;
+                }
+
+                if(migration != null){
+                    locale.send(sender, "commands.admin.migrate.running", false);
+                    return;
+                }
+
+                String from = arguments[1];
+                String to   = arguments[2];
+
+                if(from.equalsIgnoreCase(to)){
+                    locale.send(sender, "commands.admin.migrate.same_type", false);
+                    return;
+                }
+
+                boolean offline = arguments.length == 4;
+                if(offline && !(sender instanceof ConsoleCommandSender)){
+                    locale.send(sender, "commands.admin.migrate.console_only", false);
+                    return;
+                }
+
+                // Imports into the active storage would race its write queue and main thread caches
+                if(!offline && to.equalsIgnoreCase(plugin.getStringSetting(Setting.GENERAL_STORAGE_TYPE))){
+                    locale.send(sender, "commands.admin.migrate.active_online", false);
+                    return;
+                }
+
+                migration = new StorageMigration(plugin, from, to, (key, placeholders) -> {
+                    if(Bukkit.isPrimaryThread()){
+                        locale.send(sender, key, true, placeholders);
+                    } else {
+                        Bukkit.getScheduler().runTask(plugin, () -> locale.send(sender, key, true, placeholders));
+                    }
+                });
+
+                locale.send(sender, "commands.admin.migrate.started", true,
+                        new Locale.Placeholder("from", from),
+                        new Locale.Placeholder("to", to));
+
+                if(offline){
+                    // Blocks the server on purpose, nothing can change pets while they are copied.
+                    runMigration(sender, migration);
+                } else {
+                    StorageMigration current = migration;
+                    Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> runMigration(sender, current));
+                }
+
+                break;
+            }
+
             default:
                 break;
         }
 
     }
 
+    private void runMigration(CommandSender sender, StorageMigration current){
+        boolean success = false;
+        try {
+            current.run();
+            success = true;
+        } catch (RuntimeException ex){
+            plugin.getLogger().warning("Unable to migrate storage from " + current.getFrom() + " to " + current.getTo());
+            ex.printStackTrace();
+
+            String error = String.valueOf(ex.getMessage());
+            if(Bukkit.isPrimaryThread()){
+                locale.send(sender, "commands.admin.migrate.failed", false, new Locale.Placeholder("error", error));
+            } else {
+                Bukkit.getScheduler().runTask(plugin, () ->
+                        locale.send(sender, "commands.admin.migrate.failed", false, new Locale.Placeholder("error", error)));
+            }
+        }
+
+        boolean reload = success && current.isTargetActive();
+        if(Bukkit.isPrimaryThread()){
+            finishMigration(reload);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, () -> finishMigration(reload));
+        }
+    }
+
+    /**
+     * Reloads the active storage when it received migrated data, so the server runs on it right away.
+     */
+    private void finishMigration(boolean reload){
+        migration = null;
+        if(!reload)
+            return;
+
+        plugin.getPetManager().despawnPets();
+        plugin.getStorageManager().load();
+        plugin.getStorageManager().getReady().thenRun(plugin::spawnStoredPets);
+    }
+
 }
\ No newline at end of file
@@ -6,9 +6,9 @@ import net.llamasoftware.spigot.floatingpets.command.CommandInfo;
 import net.llamasoftware.spigot.floatingpets.locale.Locale;
 import net.llamasoftware.spigot.floatingpets.api.model.PetType;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @CommandInfo(name = "list", petContext = false)
 public class CommandList extends Command {
@@ -20,9 +20,10 @@ public class CommandList extends Command {
     @Override
     public void onCommand(CommandSender sender, String[] arguments) {
 
-        List<PetType> types = plugin.getStorageManager().getCachedTypes().stream()
-                .filter(type -> sender.hasPermission("floatingpets.type." + type.getName().toLowerCase()))
-                .collect(Collectors.toList());
+        List<PetType> types = sender instanceof Player
+                ? plugin.getPermissionManager().getSnapshot((Player) sender)
+                        .filterTypes(plugin.getStorageManager().getTypeRegistry().getTypes())
+                : plugin.getStorageManager().getTypeRegistry().getPermittedTypes(sender);
 
         locale.send(sender, "commands.list.header", false,
                 new Locale.Placeholder("amount", String.valueOf(types.size())));
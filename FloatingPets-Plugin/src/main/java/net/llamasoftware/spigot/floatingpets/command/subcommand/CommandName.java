@@ -37,14 +37,14 @@ public class CommandName extends Command {
         String value = Joiner.on(" ")
                 .join(Arrays.copyOfRange(arguments, 1, arguments.length));
 
-        if(value.length() < Integer.parseInt(plugin.getStringSetting(Setting.PET_NAME_CUSTOM_MINIMUM_LENGTH))){
+        if(value.length() < plugin.getIntSetting(Setting.PET_NAME_CUSTOM_MINIMUM_LENGTH)){
             locale.send(player, "commands.name.too-short",
                     false, new Locale.Placeholder("min_length",
                             plugin.getStringSetting(Setting.PET_NAME_CUSTOM_MINIMUM_LENGTH)));
             return;
         }
 
-        if(value.length() > Integer.parseInt(plugin.getStringSetting(Setting.PET_NAME_CUSTOM_MAXIMUM_LENGTH))){
+        if(value.length() > plugin.getIntSetting(Setting.PET_NAME_CUSTOM_MAXIMUM_LENGTH)){
             locale.send(player, "commands.name.too-long",
                     false, new Locale.Placeholder("max_length",
                             plugin.getStringSetting(Setting.PET_NAME_CUSTOM_MAXIMUM_LENGTH)));
@@ -14,16 +14,12 @@ import org.bukkit.entity.Player;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @CommandInfo(name = "particle", inGame = true)
 public class CommandParticle extends Command {
 
-    private final List<ParticleInfo> enabledParticles;
-
     public CommandParticle(FloatingPets plugin){
         super(plugin);
-        enabledParticles = plugin.getSettingManager().getEnabledParticles();
     }
 
     @Override
@@ -38,11 +34,7 @@ public class CommandParticle extends Command {
                             || firstArgument.equalsIgnoreCase("off"));
 
             if(!stop) {
-                List<ParticleInfo> list = enabledParticles
-                        .stream()
-                        .filter(info ->
-                                player.hasPermission("floatingpets.particle." + info.getParticle().name().toLowerCase()))
-                        .collect(Collectors.toList());
+                List<ParticleInfo> list = plugin.getPermissionManager().getSnapshot(player).getPermittedParticles();
 
                 MenuPetParticle menu = new MenuPetParticle(plugin.getStorageManager()
                         .getLocaleByKey("menus.particle.title"), list);
@@ -73,7 +65,7 @@ public class CommandParticle extends Command {
 
         org.bukkit.Particle particleType = org.bukkit.Particle.valueOf(arguments[1]);
 
-        if(!player.hasPermission("floatingpets.particle." + particleType.name().toLowerCase())){
+        if(!plugin.getPermissionManager().getSnapshot(player).canUse(particleType)){
             locale.send(player, "commands.particle.no-permission", false);
             return;
         }
@@ -3,6 +3,8 @@ package net.llamasoftware.spigot.floatingpets.command.subcommand;
 import net.llamasoftware.spigot.floatingpets.FloatingPets;
 import net.llamasoftware.spigot.floatingpets.command.Command;
 import net.llamasoftware.spigot.floatingpets.command.CommandInfo;
+import net.llamasoftware.spigot.floatingpets.locale.Locale;
+import net.llamasoftware.spigot.floatingpets.manager.config.ConfigReloader;
 import org.bukkit.command.CommandSender;
 
 @CommandInfo(name = "reload", list = false)
@@ -14,8 +16,11 @@ public class CommandReload extends Command {
 
     @Override
     public void onCommand(CommandSender sender, String[] arguments) {
-        plugin.getStorageManager().load();
-        locale.send(sender, "commands.reload.reloaded", true);
+        ConfigReloader.Result result = plugin.getConfigReloader().reload();
+        locale.send(sender, "commands.reload.reloaded", true,
+                new Locale.Placeholder("changes", String.valueOf(result.getChangedSettings())),
+                new Locale.Placeholder("pets", String.valueOf(result.getUpdatedPets())),
+                new Locale.Placeholder("time", String.valueOf(result.getDuration())));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package net.llamasoftware.spigot.floatingpets.command.subcommand;
+
+import net.llamasoftware.spigot.floatingpets.FloatingPets;
+import net.llamasoftware.spigot.floatingpets.command.Command;
+import net.llamasoftware.spigot.floatingpets.command.CommandInfo;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+@CommandInfo(name = "search", inGame = true, petContext = false)
+public class CommandSearch extends Command {
+
+    public CommandSearch(FloatingPets plugin) {
+        super(plugin);
+    }
+
+    @Override
+    public void onCommand(CommandSender sender, String[] arguments) {
+
+        if(arguments.length == 0){
+            locale.send(sender, "commands.search.syntax", false);
+            return;
+        }
+
+        plugin.getMenuManager().openSearchResults((Player) sender, String.join(" ", arguments));
+
+    }
+
+}
@@ -26,8 +26,7 @@ public class CommandSelect extends Command {
 
         if(arguments.length == 0){
 
-            if(plugin.getConfig().contains("settings.pet.categories.enabled") &&
-                    plugin.getConfig().getBoolean("settings.pet.categories.enabled") &&
+            if(plugin.isSetting(Setting.PET_CATEGORIES) &&
                     !(plugin.getSettingManager().getCategories().size() < 2)) {
 
                 plugin.getMenuManager().openMenu(player, new MenuCategoryList(plugin.getStorageManager()
@@ -46,7 +45,7 @@ public class CommandSelect extends Command {
                 return;
             }
 
-            if(!player.hasPermission(type.get().getPermission())){
+            if(!plugin.getPermissionManager().getSnapshot(player).canUse(type.get())){
                 locale.send(player, "commands.select.no-permission", false);
                 return;
             }
@@ -22,7 +22,7 @@ public class CommandSpawn extends Command {
             return;
         }
 
-        if(plugin.getConfigDefinition().isExcludedWorld(player.getWorld().getName())){
+        if(!plugin.getWorldPolicyManager().isEnabled(player.getWorld())){
             locale.send(player, "generic.world-restricted", false);
             return;
         }
@@ -3,7 +3,7 @@ package net.llamasoftware.spigot.floatingpets.helper;
 import net.llamasoftware.spigot.floatingpets.Constants;
 import net.llamasoftware.spigot.floatingpets.api.model.FloatingPet;
 import net.llamasoftware.spigot.floatingpets.api.model.Pet;
-import net.llamasoftware.spigot.floatingpets.api.model.Setting;
+import net.llamasoftware.spigot.floatingpets.api.model.LiveSettings;
 import net.llamasoftware.spigot.floatingpets.api.nms.NMSManager;
 import lombok.Getter;
 import org.bukkit.Bukkit;
@@ -16,7 +16,6 @@ import org.bukkit.inventory.ItemStack;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -40,7 +39,7 @@ public class NMSHelper {
         }
     }
 
-    public FloatingPet constructPet(Location location, Player owner, Pet pet, Map<Setting, String> settings){
+    public FloatingPet constructPet(Location location, Player owner, Pet pet, LiveSettings settings){
 
         return nmsManager.constructPet(location, owner, pet, settings);
     }
@@ -3,15 +3,15 @@ package net.llamasoftware.spigot.floatingpets.listener;
 import net.llamasoftware.spigot.floatingpets.FloatingPets;
 import net.llamasoftware.spigot.floatingpets.menu.model.Menu;
 import net.llamasoftware.spigot.floatingpets.menu.model.MenuItem;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.Optional;
-
 public class MenuListener implements Listener {
 
     private final FloatingPets plugin;
@@ -38,14 +38,37 @@ public class MenuListener implements Listener {
         if(clickedItem == null)
             return;
 
-        Optional<MenuItem> menuItem = openedMenu.getItemByStack(event.getSlot());
+        // Raw slots below the menu size belong to the menu, higher ones to the player's own inventory.
+        MenuItem menuItem = openedMenu.getItem(event.getRawSlot());
 
-        if(!menuItem.isPresent()) {
+        if(menuItem == null) {
             return;
         }
 
-        menuItem.get().onClick(player);
+        menuItem.onClick(player);
+
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onAsyncPlayerChat(AsyncPlayerChatEvent event){
+        Player player = event.getPlayer();
+        if(!plugin.getMenuManager().consumeSearchPrompt(player.getUniqueId()))
+            return;
+
+        event.setCancelled(true);
+        String query = event.getMessage().trim();
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if(!player.isOnline())
+                return;
+
+            if(query.equalsIgnoreCase("cancel")){
+                plugin.getLocale().send(player, "commands.search.cancelled", true);
+                return;
+            }
 
+            plugin.getMenuManager().openSearchResults(player, query);
+        });
     }
 
     @EventHandler
@@ -15,16 +15,18 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,16 +38,30 @@ public class PlayerListener implements Listener {
         this.plugin = plugin;
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event){
+        if(event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED)
+            plugin.getStorageManager().prefetchPets(event.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event){
+        if(event.getResult() != PlayerLoginEvent.Result.ALLOWED)
+            plugin.getStorageManager().discardPrefetch(event.getPlayer().getUniqueId());
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event){
-        if(!plugin.isSetting(Setting.PET_SPAWN_ON_JOIN))
-            return;
-
         Player player = event.getPlayer();
-        List<Pet> pets = plugin.getStorageManager().getPetsByOwner(player.getUniqueId());
+        plugin.getPermissionManager().refresh(player);
 
-        pets.forEach(pet -> plugin.getPetManager()
-                .spawnPet(pet, player.getLocation(), player, true));
+        plugin.getStorageManager().loadPets(player.getUniqueId()).thenAccept(pets -> {
+            if(!plugin.isSetting(Setting.PET_SPAWN_ON_JOIN) || !player.isOnline())
+                return;
+
+            pets.forEach(pet -> plugin.getPetManager()
+                    .spawnPet(pet, player.getLocation(), player, true));
+        });
     }
 
     @EventHandler
@@ -55,6 +71,9 @@ public class PlayerListener implements Listener {
         List<Pet> pets = plugin.getStorageManager().getPetsByOwner(player.getUniqueId());
 
         pets.forEach(pet -> plugin.getPetManager().despawnPet(pet));
+        plugin.getStorageManager().scheduleEviction(player.getUniqueId());
+        plugin.getPermissionManager().invalidate(player.getUniqueId());
+        plugin.getMenuManager().consumeSearchPrompt(player.getUniqueId());
     }
 
     @EventHandler
@@ -113,7 +132,7 @@ public class PlayerListener implements Listener {
 
     @EventHandler
     public void onPlayerDeath(PlayerDeathEvent event){
-        LinkedList<Pet> pets = plugin.getPetManager().getPetsByOwner(event.getEntity());
+        List<Pet> pets = plugin.getPetManager().getPetsByOwner(event.getEntity());
         pets.forEach(pet -> {
             pet.getNameTag().leaveVehicle();
             pet.getEntity().getEntity().leaveVehicle();
@@ -123,6 +142,8 @@ public class PlayerListener implements Listener {
 
     @EventHandler
     public void onPlayerChangedWorld(PlayerChangedWorldEvent event){
+        // Permissions may be granted per world.
+        plugin.getPermissionManager().refresh(event.getPlayer());
 
         List<Pet> pets = plugin.getPetManager().getPetsByOwner(event.getPlayer());
         for(Pet pet : pets) {
@@ -151,11 +172,9 @@ public class PlayerListener implements Listener {
 
             plugin.getPetManager().despawnPet(pet);
 
-            if (plugin.isSetting(Setting.WORLD_FILTER)) {
-                if (plugin.getConfigDefinition().isExcludedWorld(to.getName())) {
-                    plugin.getLocale().send(player, "&7Your pet was despawned because it isn't allowed in this world.", true);
-                    return;
-                }
+            if (!plugin.getWorldPolicyManager().isEnabled(to)) {
+                plugin.getLocale().send(player, "generic.world-despawned", true);
+                return;
             }
 
             plugin.getPetManager().spawnPet(pet, player.getLocation(), player, false);
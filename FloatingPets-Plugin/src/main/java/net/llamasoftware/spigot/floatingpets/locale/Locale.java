@@ -1,21 +1,56 @@
 package net.llamasoftware.spigot.floatingpets.locale;
 
+import lombok.Getter;
 import net.llamasoftware.spigot.floatingpets.FloatingPets;
+import net.llamasoftware.spigot.floatingpets.api.model.Setting;
 import net.llamasoftware.spigot.floatingpets.manager.storage.StorageManager;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
-
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends and renders locale messages in the language of the receiving player.
+ *
+ * The locale held by the storage is the base language. Additional languages are read from
+ * the language directory, one file per client locale such as de_de.yml or de.yml, and only
+ * need to contain the messages they translate. A message is taken from the first of the client
+ * locale, its base language, the default language and the storage locale that has it.
+ */
 public class Locale {
 
     private static final char DEFAULT_COLOR_CHAR = '&';
+    private static final LocaleKey PREFIX = LocaleKey.of("generic.prefix");
+
+    private final FloatingPets plugin;
     private final StorageManager storageManager;
+    private volatile Bundles bundles;
 
     public Locale(FloatingPets plugin){
+        this.plugin         = plugin;
         this.storageManager = plugin.getStorageManager();
     }
 
+    /**
+     * Drops all compiled bundles, they are compiled again from the current locale data on next use.
+     */
+    public void reload(){
+        bundles = null;
+    }
+
     public void send(CommandSender sender, String key, boolean prefix, Placeholder... placeholders){
-        sendRaw(sender, (prefix ? getPrefix() : "") + storageManager.getLocaleByKey(key), true, placeholders);
+        LocaleBundle bundle = getBundle(sender);
+        String message = getTemplate(bundle, LocaleKey.of(key)).render(true, placeholders);
+
+        if(prefix)
+            message = getTemplate(bundle, PREFIX).render(true) + message;
+
+        sender.sendMessage(message);
     }
 
     public void sendRaw(CommandSender sender, String message, boolean colorPlaceholders, Placeholder... placeholders){
@@ -33,12 +68,32 @@ public class Locale {
     }
 
     public String getText(String key, Placeholder... placeholders){
-        String locale = color(storageManager.getLocaleByKey(key));
-        if(placeholders.length > 0){
-            locale = transformPlaceholders(locale, placeholders);
-        }
+        return getTemplate(getBundles().fallback, LocaleKey.of(key)).render(false, placeholders);
+    }
 
-        return locale;
+    /**
+     * Text in the language of the given sender.
+     */
+    public String getText(CommandSender sender, String key, Placeholder... placeholders){
+        return getTemplate(getBundle(sender), LocaleKey.of(key)).render(false, placeholders);
+    }
+
+    public List<String> getTextList(CommandSender sender, String key){
+        List<String> list = getBundle(sender).getList(LocaleKey.of(key));
+        return list != null ? list : Collections.emptyList();
+    }
+
+    /**
+     * Language bundle used for the given sender, the default language for the console or when per player languages are off.
+     */
+    public LocaleBundle getBundle(CommandSender sender){
+        Bundles current = getBundles();
+        if(!current.perPlayer || !(sender instanceof Player))
+            return current.fallback;
+
+        String language = ((Player) sender).getLocale().toLowerCase();
+        LocaleBundle bundle = current.resolved.get(language);
+        return bundle != null ? bundle : current.resolved.computeIfAbsent(language, current::resolve);
     }
 
     public String transformPlaceholders(String text, Placeholder... placeholders){
@@ -52,7 +107,9 @@ public class Locale {
 
     public static class Placeholder {
 
+        @Getter
         private final String name;
+        @Getter
         private final String value;
 
         public Placeholder(String name, String value){
@@ -66,12 +123,97 @@ public class Locale {
 
     }
 
-    private String getPrefix(){
-        return storageManager.getLocaleByKey("generic.prefix");
+    /**
+     * Unknown keys render as the key itself, like {@link StorageManager#getLocaleByKey(String)}.
+     */
+    private MessageTemplate getTemplate(LocaleBundle bundle, LocaleKey key){
+        MessageTemplate template = bundle.getMessage(key);
+        return template != null ? template : MessageTemplate.compile(key.getName());
+    }
+
+    private Bundles getBundles(){
+        Bundles current = bundles;
+        if(current != null)
+            return current;
+
+        synchronized (this){
+            if(bundles == null)
+                bundles = compile();
+
+            return bundles;
+        }
+    }
+
+    private Bundles compile(){
+        LocaleBundle base = LocaleBundle.compile("", storageManager.exportLocale());
+
+        Map<String, LocaleBundle> languages = new HashMap<>();
+        File directory = new File(plugin.getDataFolder(), plugin.getStringSetting(Setting.LOCALE_DIRECTORY));
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".yml"));
+
+        if(files != null){
+            for (File file : files) {
+                String language = file.getName().substring(0, file.getName().length() - 4).toLowerCase();
+                YamlConfiguration configuration = YamlConfiguration.loadConfiguration(file);
+                ConfigurationSection section = configuration.isConfigurationSection("locale")
+                        ? configuration.getConfigurationSection("locale") : configuration;
+
+                Map<String, Object> data = new HashMap<>();
+                section.getKeys(true).forEach(key -> data.put(key, section.get(key)));
+                languages.put(language, LocaleBundle.compile(language, data));
+            }
+        }
+
+        return new Bundles(base, languages, plugin.getStringSetting(Setting.LOCALE_DEFAULT_LANGUAGE).toLowerCase(),
+                plugin.isSetting(Setting.LOCALE_PER_PLAYER));
     }
 
     public String color(String text){
         return ChatColor.translateAlternateColorCodes(DEFAULT_COLOR_CHAR, text);
     }
 
-}
\ No newline at end of file
+    private static class Bundles {
+
+        private final LocaleBundle base;
+        private final Map<String, LocaleBundle> languages;
+        private final String defaultLanguage;
+        private final boolean perPlayer;
+        private final LocaleBundle fallback;
+        private final Map<String, LocaleBundle> resolved = new ConcurrentHashMap<>();
+
+        private Bundles(LocaleBundle base, Map<String, LocaleBundle> languages, String defaultLanguage, boolean perPlayer){
+            this.base            = base;
+            this.languages       = languages;
+            this.defaultLanguage = defaultLanguage;
+            this.perPlayer       = perPlayer;
+            this.fallback        = resolve(defaultLanguage);
+        }
+
+        /**
+         * Merges the fallback chain of a client locale, e.g. de_at, de, the default language and the storage locale.
+         */
+        private LocaleBundle resolve(String language){
+            List<LocaleBundle> chain = new ArrayList<>(5);
+            addLanguage(chain, language);
+            addLanguage(chain, defaultLanguage);
+            chain.add(base);
+
+            return LocaleBundle.merge(language, chain);
+        }
+
+        private void addLanguage(List<LocaleBundle> chain, String language){
+            addBundle(chain, languages.get(language));
+
+            int separator = language.indexOf('_');
+            if(separator > 0)
+                addBundle(chain, languages.get(language.substring(0, separator)));
+        }
+
+        private void addBundle(List<LocaleBundle> chain, LocaleBundle bundle){
+            if(bundle != null && !chain.contains(bundle))
+                chain.add(bundle);
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+package net.llamasoftware.spigot.floatingpets.locale;
+
+import lombok.Getter;
+import org.bukkit.ChatColor;
+
+import java.util.*;
+
+/**
+ * Compiled messages and message lists of one language.
+ */
+public class LocaleBundle {
+
+    @Getter
+    private final String language;
+    private final Map<LocaleKey, MessageTemplate> messages;
+    private final Map<LocaleKey, List<String>> lists;
+
+    private LocaleBundle(String language, Map<LocaleKey, MessageTemplate> messages, Map<LocaleKey, List<String>> lists){
+        this.language = language;
+        this.messages = messages;
+        this.lists    = lists;
+    }
+
+    /**
+     * Compiles raw locale data, strings become templates and string lists are coloured.
+     */
+    public static LocaleBundle compile(String language, Map<String, Object> data){
+        Map<LocaleKey, MessageTemplate> messages = new IdentityHashMap<>(data.size() * 2);
+        Map<LocaleKey, List<String>> lists = new IdentityHashMap<>();
+
+        data.forEach((key, value) -> {
+            if(value instanceof String){
+                messages.put(LocaleKey.of(key), MessageTemplate.compile((String) value));
+            } else if(value instanceof List){
+                List<String> lines = new ArrayList<>(((List<?>) value).size());
+                for (Object line : (List<?>) value) {
+                    lines.add(ChatColor.translateAlternateColorCodes('&', String.valueOf(line)));
+                }
+
+                lists.put(LocaleKey.of(key), Collections.unmodifiableList(lines));
+            }
+        });
+
+        return new LocaleBundle(language, messages, lists);
+    }
+
+    /**
+     * Flattens a fallback chain, most specific bundle first, into one bundle so lookups
+     * cost the same no matter how many languages are installed.
+     */
+    public static LocaleBundle merge(String language, List<LocaleBundle> chain){
+        Map<LocaleKey, MessageTemplate> messages = new IdentityHashMap<>();
+        Map<LocaleKey, List<String>> lists = new IdentityHashMap<>();
+
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            messages.putAll(chain.get(i).messages);
+            lists.putAll(chain.get(i).lists);
+        }
+
+        return new LocaleBundle(language, messages, lists);
+    }
+
+    public MessageTemplate getMessage(LocaleKey key){
+        return messages.get(key);
+    }
+
+    public List<String> getList(LocaleKey key){
+        return lists.get(key);
+    }
+
+}
@@ -0,0 +1,33 @@
+package net.llamasoftware.spigot.floatingpets.locale;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned locale key. There is exactly one instance per key name, so bundles
+ * can look messages up by identity instead of hashing and comparing strings.
+ */
+public final class LocaleKey {
+
+    private static final Map<String, LocaleKey> KEYS = new ConcurrentHashMap<>();
+
+    @Getter
+    private final String name;
+
+    private LocaleKey(String name){
+        this.name = name;
+    }
+
+    public static LocaleKey of(String name){
+        LocaleKey key = KEYS.get(name);
+        return key != null ? key : KEYS.computeIfAbsent(name, LocaleKey::new);
+    }
+
+    @Override
+    public String toString(){
+        return name;
+    }
+
+}
@@ -0,0 +1,104 @@
+package net.llamasoftware.spigot.floatingpets.locale;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locale message compiled once into coloured literal parts and the placeholders between them,
+ * so rendering is a single pass without translating colour codes or searching the text.
+ */
+public class MessageTemplate {
+
+    private static final char COLOR_CHAR = '&';
+
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int length;
+
+    private MessageTemplate(String[] literals, String[] placeholders){
+        this.literals     = literals;
+        this.placeholders = placeholders;
+
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.length = length;
+    }
+
+    /**
+     * Splits the text at every %name% placeholder. A percent sign that does not start a placeholder stays literal.
+     */
+    public static MessageTemplate compile(String text){
+        List<String> literals     = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < text.length()){
+            char c = text.charAt(i);
+            int end = c == '%' ? text.indexOf('%', i + 1) : -1;
+
+            if(end > i + 1 && isName(text, i + 1, end)){
+                literals.add(color(literal.toString()));
+                placeholders.add(text.substring(i + 1, end));
+                literal.setLength(0);
+                i = end + 1;
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        literals.add(color(literal.toString()));
+
+        return new MessageTemplate(literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    /**
+     * @param colorValues whether colour codes inside placeholder values are translated as well
+     */
+    public String render(boolean colorValues, Locale.Placeholder... values){
+        if(placeholders.length == 0)
+            return literals[0];
+
+        StringBuilder builder = new StringBuilder(length + placeholders.length * 16);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]);
+
+            String value = find(placeholders[i], values);
+            if(value == null){
+                builder.append('%').append(placeholders[i]).append('%');
+            } else {
+                builder.append(colorValues ? color(value) : value);
+            }
+        }
+
+        return builder.append(literals[placeholders.length]).toString();
+    }
+
+    private static String find(String name, Locale.Placeholder[] values){
+        for (Locale.Placeholder value : values) {
+            if(value.getName().equals(name))
+                return value.getValue();
+        }
+
+        return null;
+    }
+
+    private static boolean isName(String text, int start, int end){
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if(!Character.isLetterOrDigit(c) && c != '_' && c != '-')
+                return false;
+        }
+
+        return true;
+    }
+
+    private static String color(String text){
+        return ChatColor.translateAlternateColorCodes(COLOR_CHAR, text);
+    }
+
+}
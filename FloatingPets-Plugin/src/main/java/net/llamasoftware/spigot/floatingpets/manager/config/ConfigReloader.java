@@ -0,0 +1,222 @@
+package net.llamasoftware.spigot.floatingpets.manager.config;
+
+import lombok.Getter;
+import net.llamasoftware.spigot.floatingpets.FloatingPets;
+import net.llamasoftware.spigot.floatingpets.api.model.Particle;
+import net.llamasoftware.spigot.floatingpets.api.model.Pet;
+import net.llamasoftware.spigot.floatingpets.api.model.Setting;
+import net.llamasoftware.spigot.floatingpets.api.model.SettingsSnapshot;
+import net.llamasoftware.spigot.floatingpets.api.model.Skill;
+import net.llamasoftware.spigot.floatingpets.manager.storage.StorageManager;
+import net.llamasoftware.spigot.floatingpets.model.misc.AnimationType;
+import net.llamasoftware.spigot.floatingpets.model.pet.IParticle;
+import net.llamasoftware.spigot.floatingpets.model.skill.AttributeSkill;
+import net.llamasoftware.spigot.floatingpets.util.Utility;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+
+/**
+ * Reloads the configuration while pets stay spawned.
+ *
+ * The old and new "settings" sections are compared value by value, and only what changed is
+ * applied to spawned pets: animations are swapped, particles restarted with their new speed,
+ * attribute skills and health applied again and titles rendered again.
+ */
+public class ConfigReloader {
+
+    private static final Setting[] PARTICLE_SPEEDS = {
+            Setting.PET_PARTICLE_SPEED_SLOW,
+            Setting.PET_PARTICLE_SPEED_NORMAL,
+            Setting.PET_PARTICLE_SPEED_FAST,
+            Setting.PET_PARTICLE_SPEED_FASTEST
+    };
+
+    private final FloatingPets plugin;
+
+    public ConfigReloader(FloatingPets plugin){
+        this.plugin = plugin;
+    }
+
+    /**
+     * Reloads the configuration and the storage caches, and updates spawned pets. Runs on the main thread.
+     */
+    public Result reload(){
+        long start = System.currentTimeMillis();
+
+        Map<String, Object> previousValues = flatten(plugin.getConfig().getConfigurationSection("settings"));
+        SettingsSnapshot previous          = plugin.getSettings().getSnapshot();
+        AnimationType previousAnimation    = plugin.getSettingManager().getAnimationType();
+
+        plugin.reloadSettings();
+
+        Set<String> changed = diff(previousValues, flatten(plugin.getConfig().getConfigurationSection("settings")));
+        boolean animation   = previousAnimation != plugin.getSettingManager().getAnimationType();
+
+        int updated = 0;
+        if(!changed.isEmpty()){
+            for (Pet pet : new ArrayList<>(plugin.getPetManager().getActivePets())) {
+                if(pet.isAlive() && apply(pet, changed, previous, animation))
+                    updated++;
+            }
+        }
+
+        plugin.getStorageManager().load();
+
+        return new Result(changed.size(), updated, System.currentTimeMillis() - start);
+    }
+
+    private boolean apply(Pet pet, Set<String> changed, SettingsSnapshot previous, boolean animation){
+        Player owner = pet.getOnlineOwner();
+        if(owner == null)
+            return false;
+
+        boolean updated = false;
+
+        if(animation){
+            pet.setAnimation(plugin.getPetManager().createAnimation(pet, owner));
+            updated = true;
+        }
+
+        if(isChanged(changed, "pet.particle.speeds") && restartParticle(pet, previous))
+            updated = true;
+
+        boolean health = isChanged(changed, Setting.PET_MAX_HEALTH.getKey());
+        if(health){
+            AttributeInstance attribute = pet.getEntity().getEntity().getAttribute(Attribute.GENERIC_MAX_HEALTH);
+            if(attribute != null)
+                attribute.setBaseValue(plugin.getDoubleSetting(Setting.PET_MAX_HEALTH));
+        }
+
+        boolean skills = isChanged(changed, "pet.skills") && replaceSkills(pet);
+        if(health || skills){
+            pet.getSkills().stream()
+                    .filter(skill -> skill instanceof AttributeSkill)
+                    .forEach(skill -> skill.applySkill(pet));
+            updated = true;
+        }
+
+        if(isChanged(changed, Setting.PET_NAME_FORMAT.getKey())
+                || isChanged(changed, Setting.PET_HIGHER.getKey())
+                || isChanged(changed, Setting.PET_HIDE_NAME_ON_MOVE.getKey())){
+
+            ArmorStand nameTag = (ArmorStand) pet.getNameTag();
+            nameTag.setSmall(!plugin.isSetting(Setting.PET_HIGHER));
+            nameTag.setCustomNameVisible(!plugin.isSetting(Setting.PET_HIDE_NAME_ON_MOVE) || pet.isStill());
+            nameTag.setCustomName(plugin.getUtility().formatTitle(pet,
+                    plugin.getPermissionManager().getSnapshot(owner).isColoredNames()));
+            updated = true;
+        }
+
+        return updated;
+    }
+
+    /**
+     * Restarts the particle of the pet if the speed it was set to has a new value. The tier is told by
+     * its previous value, so if tiers shared that value and now differ the particle is left alone.
+     */
+    private boolean restartParticle(Pet pet, SettingsSnapshot previous){
+        if(!pet.hasParticle())
+            return false;
+
+        Particle particle = pet.getParticle();
+        Set<Integer> candidates = new HashSet<>();
+        for (Setting speed : PARTICLE_SPEEDS) {
+            if(previous.getInt(speed) == particle.getSpeed())
+                candidates.add(plugin.getIntSetting(speed));
+        }
+
+        if(candidates.size() != 1)
+            return false;
+
+        int current = candidates.iterator().next();
+        if(current == particle.getSpeed())
+            return false;
+
+        IParticle restarted = new IParticle(particle.getParticle(), current, plugin);
+        restarted.setPet(pet);
+        pet.setParticle(restarted);
+        plugin.getStorageManager().updatePet(pet, StorageManager.Action.PARTICLE);
+        return true;
+    }
+
+    /**
+     * Replaces the skills of the pet with the ones of the reloaded skill levels.
+     */
+    private boolean replaceSkills(Pet pet){
+        List<Skill> skills = pet.getSkills();
+        if(skills == null || skills.isEmpty())
+            return false;
+
+        for (ListIterator<Skill> iterator = skills.listIterator(); iterator.hasNext();) {
+            Skill skill = iterator.next();
+            if(skill == null)
+                continue;
+
+            Skill reloaded = Utility.deserializeSkill(Utility.serializeSkill(skill), plugin);
+            if(reloaded != null)
+                iterator.set(reloaded);
+        }
+
+        return true;
+    }
+
+    private static boolean isChanged(Set<String> changed, String path){
+        for (String key : changed) {
+            if(key.equals(path) || key.startsWith(path + "."))
+                return true;
+        }
+
+        return false;
+    }
+
+    private static Map<String, Object> flatten(ConfigurationSection section){
+        Map<String, Object> values = new HashMap<>();
+        if(section == null)
+            return values;
+
+        section.getValues(true).forEach((key, value) -> {
+            if(!(value instanceof ConfigurationSection))
+                values.put(key, value);
+        });
+
+        return values;
+    }
+
+    private static Set<String> diff(Map<String, Object> previous, Map<String, Object> current){
+        Set<String> changed = new HashSet<>();
+        current.forEach((key, value) -> {
+            if(!Objects.equals(previous.get(key), value))
+                changed.add(key);
+        });
+
+        for (String key : previous.keySet()) {
+            if(!current.containsKey(key))
+                changed.add(key);
+        }
+
+        return changed;
+    }
+
+    public static class Result {
+
+        @Getter
+        private final int changedSettings;
+        @Getter
+        private final int updatedPets;
+        @Getter
+        private final long duration;
+
+        private Result(int changedSettings, int updatedPets, long duration){
+            this.changedSettings = changedSettings;
+            this.updatedPets     = updatedPets;
+            this.duration        = duration;
+        }
+
+    }
+
+}
@@ -20,19 +20,26 @@ import java.util.stream.Collectors;
 public class SettingManager {
 
     private final FloatingPets plugin;
-    private final FileConfiguration config;
+    private FileConfiguration config;
 
     @Getter
-    private final List<ParticleInfo> enabledParticles;
+    private List<ParticleInfo> enabledParticles;
     @Getter
-    private final List<SkillCategory> skillCategories;
+    private List<SkillCategory> skillCategories;
     @Getter
-    private final List<PetCategory> categories;
+    private List<PetCategory> categories;
     @Getter
-    private final AnimationType animationType;
+    private AnimationType animationType;
 
     public SettingManager(FloatingPets plugin) {
-        this.plugin           = plugin;
+        this.plugin = plugin;
+        reload();
+    }
+
+    /**
+     * Reads particles, skills, categories and the animation type again from the current configuration.
+     */
+    public void reload(){
         this.config           = plugin.getConfig();
         this.enabledParticles = loadEnabledParticles();
         this.skillCategories  = loadSkillCategories();
@@ -61,8 +68,7 @@ public class SettingManager {
 
         addCategoryById(categories, "default");
 
-        if(!config.contains("settings.pet.categories.enabled")
-                || !config.getBoolean("settings.pet.categories.enabled"))
+        if(!plugin.isSetting(Setting.PET_CATEGORIES))
 
             return categories;
 
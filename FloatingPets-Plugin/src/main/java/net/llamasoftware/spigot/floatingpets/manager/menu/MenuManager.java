@@ -1,21 +1,33 @@
 package net.llamasoftware.spigot.floatingpets.manager.menu;
 
+import lombok.Getter;
 import net.llamasoftware.spigot.floatingpets.FloatingPets;
 import net.llamasoftware.spigot.floatingpets.api.model.PetCategory;
 import net.llamasoftware.spigot.floatingpets.api.model.PetType;
+import net.llamasoftware.spigot.floatingpets.api.model.Setting;
+import net.llamasoftware.spigot.floatingpets.locale.Locale;
 import net.llamasoftware.spigot.floatingpets.menu.MenuPetSelector;
 import net.llamasoftware.spigot.floatingpets.menu.model.Menu;
+import net.llamasoftware.spigot.floatingpets.menu.model.MenuItem;
+import net.llamasoftware.spigot.floatingpets.util.ItemBuilder;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.scheduler.BukkitTask;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class MenuManager {
 
+    private static final long SLICE_BUDGET = TimeUnit.MILLISECONDS.toNanos(5);
+
     private final Map<UUID, Menu> openedMenus = new HashMap<>();
+    private final Set<UUID> searchPrompts = ConcurrentHashMap.newKeySet();
+    @Getter
+    private final MenuRenderCache renderCache = new MenuRenderCache();
     private final FloatingPets plugin;
 
     public MenuManager(FloatingPets plugin) {
@@ -30,7 +42,73 @@ public class MenuManager {
         player.closeInventory();
 
         openedMenus.put(player.getUniqueId(), menu);
-        menu.open(player, this, plugin);
+
+        if(!menu.isComposedInSlices() || !plugin.isSetting(Setting.MENU_ASYNC_COMPOSITION) || !menu.hasValidSize()){
+            menu.open(player, this, plugin);
+            return;
+        }
+
+        composeInSlices(player, menu);
+    }
+
+    /**
+     * Builds the items of the menu a slice per tick on the main thread, since item stacks, settings and
+     * the locale may not be touched elsewhere. If building takes longer than the loading threshold a
+     * loading page is opened meanwhile and filled in place.
+     */
+    private void composeInSlices(Player player, Menu menu){
+        menu.prepare(player, this, plugin);
+
+        if(menu.render(SLICE_BUDGET)){
+            menu.show(menu.compose());
+            return;
+        }
+
+        long threshold = plugin.getLongSetting(Setting.MENU_LOADING_THRESHOLD);
+        BukkitTask loading = Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            if(isOpened(player, menu))
+                menu.showLoading(new ItemBuilder(Material.CLOCK)
+                        .name(plugin.getLocale().getText(player, "menus.loading")).build());
+        }, Math.max(1, threshold / 50));
+
+        Bukkit.getScheduler().runTaskTimer(plugin, task -> {
+            if(!isOpened(player, menu)){
+                task.cancel();
+                loading.cancel();
+                return;
+            }
+
+            try {
+                if(!menu.render(SLICE_BUDGET))
+                    return;
+            } catch (RuntimeException ex){
+                plugin.getLogger().warning("Unable to compose menu " + menu.getClass().getSimpleName());
+                ex.printStackTrace();
+
+                task.cancel();
+                loading.cancel();
+                clearMenu(player.getUniqueId());
+                if(menu.isShowing())
+                    player.closeInventory();
+                return;
+            }
+
+            task.cancel();
+            loading.cancel();
+
+            // The player opened another inventory meanwhile, opening the menu now would close it.
+            InventoryType open = player.getOpenInventory().getType();
+            if(!menu.isShowing() && open != InventoryType.CRAFTING && open != InventoryType.CREATIVE){
+                clearMenu(player.getUniqueId());
+                return;
+            }
+
+            menu.show(menu.compose());
+        }, 1, 1);
+    }
+
+    private boolean isOpened(Player player, Menu menu){
+        return player.isOnline() && openedMenus.get(player.getUniqueId()) == menu;
     }
 
     public void clearMenu(UUID player) {
@@ -38,14 +116,45 @@ public class MenuManager {
     }
 
     public void openPetSelector(Player player, PetCategory category){
-        List<PetType> types = plugin.getStorageManager().getCachedTypes()
-                .stream()
-                .filter(type -> type.getCategory().equals(category))
-                .filter(type -> player.hasPermission(type.getPermission()))
-                .collect(Collectors.toList());
+        List<PetType> types = plugin.getPermissionManager().getSnapshot(player)
+                .filterTypes(plugin.getStorageManager().getTypeRegistry().getTypesByCategory(category));
 
         MenuPetSelector menu = new MenuPetSelector(plugin.getStorageManager().getLocaleByKey("menus.selector.title"), types);
         plugin.getMenuManager().openMenu(player, menu, plugin);
     }
 
+    /**
+     * Opens a selector with the types matching the query that the player may use.
+     */
+    public void openSearchResults(Player player, String query){
+        List<PetType> types = plugin.getPermissionManager().getSnapshot(player)
+                .filterTypes(plugin.getStorageManager().getTypeRegistry().search(query));
+
+        if(types.isEmpty()){
+            plugin.getLocale().send(player, "commands.search.no-results", false,
+                    new Locale.Placeholder("query", query));
+            return;
+        }
+
+        MenuPetSelector menu = new MenuPetSelector(plugin.getLocale().getText(player, "menus.search.title",
+                new Locale.Placeholder("query", query)), types);
+        openMenu(player, menu, plugin);
+    }
+
+    /**
+     * Closes the menu and reads the next chat message of the player as a search query.
+     */
+    public void promptSearch(Player player){
+        player.closeInventory();
+        searchPrompts.add(player.getUniqueId());
+        plugin.getLocale().send(player, "commands.search.prompt", true);
+    }
+
+    /**
+     * Whether the player was prompted for a search query, which is consumed by this call.
+     */
+    public boolean consumeSearchPrompt(UUID player){
+        return searchPrompts.remove(player);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package net.llamasoftware.spigot.floatingpets.manager.menu;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Rendered list menu pages, so browsing a list only copies item stacks instead of building them again.
+ *
+ * A page is keyed by menu type, page index, language and a hash of the entries the viewer may see,
+ * which for permission filtered lists stands for the viewer's relevant permissions. The entries
+ * themselves are compared on every hit, so a hash collision never shows another viewer's page.
+ */
+public class MenuRenderCache {
+
+    private static final int MAX_PAGES = 512;
+
+    private final Map<PageKey, Page> pages = new LinkedHashMap<PageKey, Page>(64, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PageKey, Page> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    /**
+     * Copies of the rendered items of the page, or null if the page is not cached.
+     */
+    public synchronized ItemStack[] get(Class<?> menuType, int page, String language, List<?> entries){
+        Page cached = pages.get(new PageKey(menuType, page, language, hash(entries)));
+        if(cached == null || !cached.matches(entries))
+            return null;
+
+        ItemStack[] copies = new ItemStack[cached.items.length];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = cached.items[i] == null ? null : cached.items[i].clone();
+        }
+
+        return copies;
+    }
+
+    public synchronized boolean contains(Class<?> menuType, int page, String language, List<?> entries){
+        Page cached = pages.get(new PageKey(menuType, page, language, hash(entries)));
+        return cached != null && cached.matches(entries);
+    }
+
+    public synchronized void put(Class<?> menuType, int page, String language, List<?> entries, ItemStack[] items){
+        ItemStack[] copies = new ItemStack[items.length];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = items[i] == null ? null : items[i].clone();
+        }
+
+        pages.put(new PageKey(menuType, page, language, hash(entries)), new Page(entries.toArray(), copies));
+    }
+
+    /**
+     * Drops every page, called whenever types, the catalog, the locale or the configuration change.
+     */
+    public synchronized void invalidate(){
+        pages.clear();
+    }
+
+    public synchronized int size(){
+        return pages.size();
+    }
+
+    private static int hash(List<?> entries){
+        int hash = 1;
+        for (Object entry : entries) {
+            hash = 31 * hash + System.identityHashCode(entry);
+        }
+
+        return hash;
+    }
+
+    private static class PageKey {
+
+        private final Class<?> menuType;
+        private final int page;
+        private final String language;
+        private final int entriesHash;
+
+        private PageKey(Class<?> menuType, int page, String language, int entriesHash){
+            this.menuType    = menuType;
+            this.page        = page;
+            this.language    = language;
+            this.entriesHash = entriesHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PageKey key = (PageKey) o;
+            return page == key.page &&
+                    entriesHash == key.entriesHash &&
+                    menuType == key.menuType &&
+                    Objects.equals(language, key.language);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(menuType, page, language, entriesHash);
+        }
+
+    }
+
+    private static class Page {
+
+        private final Object[] entries;
+        private final ItemStack[] items;
+
+        private Page(Object[] entries, ItemStack[] items){
+            this.entries = entries;
+            this.items   = items;
+        }
+
+        private boolean matches(List<?> other){
+            if(other.size() != entries.length)
+                return false;
+
+            for (int i = 0; i < entries.length; i++) {
+                if(other.get(i) != entries[i])
+                    return false;
+            }
+
+            return true;
+        }
+
+    }
+
+}
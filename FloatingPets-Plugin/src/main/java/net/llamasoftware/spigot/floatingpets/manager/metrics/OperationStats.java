@@ -0,0 +1,105 @@
+package net.llamasoftware.spigot.floatingpets.manager.metrics;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and latency histogram of a single kind of storage operation. Safe to record from any thread.
+ */
+public class OperationStats {
+
+    /**
+     * Upper bounds of the histogram buckets in microseconds, the last bucket holds everything slower.
+     */
+    private static final long[] BUCKET_BOUNDS = {
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000
+    };
+
+    @Getter
+    private final String name;
+    private final LongAdder count      = new LongAdder();
+    private final LongAdder errors     = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos  = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+    public OperationStats(String name){
+        this.name = name;
+    }
+
+    public void record(long nanos, boolean failed){
+        count.increment();
+        totalNanos.add(nanos);
+        if(failed)
+            errors.increment();
+
+        long max;
+        do {
+            max = maxNanos.get();
+        } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+
+        long micros = nanos / 1_000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && micros > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+
+        buckets.incrementAndGet(bucket);
+    }
+
+    public long getCount(){
+        return count.sum();
+    }
+
+    public long getErrors(){
+        return errors.sum();
+    }
+
+    public double getAverageMillis(){
+        long operations = count.sum();
+        return operations == 0 ? 0 : totalNanos.sum() / (double) operations / 1_000_000;
+    }
+
+    public double getMaxMillis(){
+        return maxNanos.get() / 1_000_000D;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, or the maximum for the slowest bucket.
+     */
+    public double getPercentileMillis(double percentile){
+        long total = count.sum();
+        if(total == 0)
+            return 0;
+
+        long target = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            seen += buckets.get(i);
+            if(seen >= target)
+                return BUCKET_BOUNDS[i] / 1_000D;
+        }
+
+        return getMaxMillis();
+    }
+
+    /**
+     * Operations per bucket, keyed by the bucket's upper bound in milliseconds.
+     */
+    public Map<String, Long> getHistogram(){
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            histogram.put(String.valueOf(BUCKET_BOUNDS[i] / 1_000D), buckets.get(i));
+        }
+
+        histogram.put("inf", buckets.get(BUCKET_BOUNDS.length));
+        return histogram;
+    }
+
+}
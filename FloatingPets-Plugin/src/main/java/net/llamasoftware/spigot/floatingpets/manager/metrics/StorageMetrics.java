@@ -0,0 +1,135 @@
+package net.llamasoftware.spigot.floatingpets.manager.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Latency and error statistics of storage operations, with a log entry for every operation
+ * slower than the configured threshold.
+ *
+ * Time an operation with try-with-resources and mark it successful at the end:
+ * <pre>
+ * try (StorageMetrics.Timer timer = metrics.time("pet.write")) {
+ *     ...
+ *     timer.success();
+ * }
+ * </pre>
+ */
+public class StorageMetrics {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final Logger logger;
+    @Getter
+    private final long slowThresholdMillis;
+
+    public StorageMetrics(Logger logger, long slowThresholdMillis){
+        this.logger              = logger;
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    public Timer time(String operation){
+        return new Timer(operation, null);
+    }
+
+    /**
+     * @param detail what is logged when the operation turns out slow, usually the statement
+     */
+    public Timer time(String operation, String detail){
+        return new Timer(operation, detail);
+    }
+
+    public void record(String operation, long nanos, boolean failed, String detail){
+        operations.computeIfAbsent(operation, OperationStats::new).record(nanos, failed);
+
+        if(slowThresholdMillis > 0 && nanos >= slowThresholdMillis * 1_000_000){
+            logger.warning(String.format("Slow storage operation '%s' took %.1f ms%s", operation, nanos / 1_000_000D,
+                    detail == null ? "" : ": " + detail));
+        }
+    }
+
+    /**
+     * Statistics of every operation recorded so far, ordered by name.
+     */
+    public Map<String, OperationStats> getOperations(){
+        return new TreeMap<>(operations);
+    }
+
+    public void reset(){
+        operations.clear();
+    }
+
+    /**
+     * Writes all statistics as JSON, together with the given connection pool state.
+     */
+    public void dump(File file, Map<String, Integer> pool) throws IOException {
+        JsonObject root = new JsonObject();
+        root.addProperty("timestamp", System.currentTimeMillis());
+        root.addProperty("slow_threshold_ms", slowThresholdMillis);
+
+        JsonObject operationsObject = new JsonObject();
+        getOperations().forEach((name, stats) -> {
+            JsonObject operation = new JsonObject();
+            operation.addProperty("count", stats.getCount());
+            operation.addProperty("errors", stats.getErrors());
+            operation.addProperty("avg_ms", stats.getAverageMillis());
+            operation.addProperty("p50_ms", stats.getPercentileMillis(50));
+            operation.addProperty("p95_ms", stats.getPercentileMillis(95));
+            operation.addProperty("p99_ms", stats.getPercentileMillis(99));
+            operation.addProperty("max_ms", stats.getMaxMillis());
+
+            JsonObject histogram = new JsonObject();
+            stats.getHistogram().forEach(histogram::addProperty);
+            operation.add("histogram", histogram);
+
+            operationsObject.add(name, operation);
+        });
+        root.add("operations", operationsObject);
+
+        JsonObject poolObject = new JsonObject();
+        pool.forEach(poolObject::addProperty);
+        root.add("pool", poolObject);
+
+        Files.write(file.toPath(), GSON.toJson(root).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public class Timer implements AutoCloseable {
+
+        private final String operation;
+        private final String detail;
+        private final long start;
+        private boolean succeeded;
+
+        private Timer(String operation, String detail){
+            this.operation = operation;
+            this.detail    = detail;
+            this.start     = System.nanoTime();
+        }
+
+        public void success(){
+            succeeded = true;
+        }
+
+        /**
+         * Records the operation, as failed unless {@link #success()} was called.
+         */
+        @Override
+        public void close(){
+            record(operation, System.nanoTime() - start, !succeeded, detail);
+        }
+
+    }
+
+}
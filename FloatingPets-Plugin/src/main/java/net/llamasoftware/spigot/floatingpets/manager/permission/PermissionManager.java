@@ -0,0 +1,83 @@
+package net.llamasoftware.spigot.floatingpets.manager.permission;
+
+import net.llamasoftware.spigot.floatingpets.FloatingPets;
+import net.llamasoftware.spigot.floatingpets.api.model.PetType;
+import net.llamasoftware.spigot.floatingpets.api.model.Setting;
+import net.llamasoftware.spigot.floatingpets.model.misc.ParticleInfo;
+import net.llamasoftware.spigot.floatingpets.model.misc.PermissionSnapshot;
+import org.bukkit.Particle;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a {@link PermissionSnapshot} per online player.
+ *
+ * Snapshots are rebuilt on join and world change, dropped when the type catalog or configuration
+ * is reloaded, and expire after a configurable time. Bukkit has no event for recalculated
+ * permissions, so the expiry bounds how long a changed permission takes to apply.
+ */
+public class PermissionManager {
+
+    private final FloatingPets plugin;
+    private final Map<UUID, PermissionSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    public PermissionManager(FloatingPets plugin){
+        this.plugin = plugin;
+    }
+
+    public PermissionSnapshot getSnapshot(Player player){
+        PermissionSnapshot snapshot = snapshots.get(player.getUniqueId());
+        if(snapshot == null || snapshot.isExpired())
+            snapshot = refresh(player);
+
+        return snapshot;
+    }
+
+    public PermissionSnapshot refresh(Player player){
+        PermissionSnapshot snapshot = build(player);
+        snapshots.put(player.getUniqueId(), snapshot);
+        return snapshot;
+    }
+
+    public void invalidate(UUID player){
+        snapshots.remove(player);
+    }
+
+    public void invalidateAll(){
+        snapshots.clear();
+    }
+
+    private PermissionSnapshot build(Player player){
+        long ttl = plugin.getLongSetting(Setting.PERMISSION_SNAPSHOT_TTL);
+
+        Set<PetType> types = Collections.newSetFromMap(new IdentityHashMap<>());
+        types.addAll(plugin.getStorageManager().getTypeRegistry().getPermittedTypes(player));
+
+        Set<Particle> particles = EnumSet.noneOf(Particle.class);
+        for (Particle particle : Particle.values()) {
+            if(player.hasPermission("floatingpets.particle." + particle.name().toLowerCase()))
+                particles.add(particle);
+        }
+
+        List<ParticleInfo> displayed = plugin.getSettingManager().getEnabledParticles().stream()
+                .filter(info -> particles.contains(info.getParticle()))
+                .collect(Collectors.toList());
+
+        return PermissionSnapshot.builder()
+                .expiry(System.currentTimeMillis() + ttl * 1000)
+                .petLimit(plugin.getUtility().getPermissionBasedSetting(player, "pet.multiple_pets.limits",
+                        "limit", Long.MAX_VALUE))
+                .selectCooldown(plugin.getUtility().getPermissionBasedSetting(player, "pet.cooldown.select.limits",
+                        "select_cooldown", 0))
+                .coloredNames(player.hasPermission("floatingpets.name.color"))
+                .particleCustomization(player.hasPermission("floatingpets.particle.customization"))
+                .permittedTypes(types)
+                .permittedParticles(Collections.unmodifiableList(displayed))
+                .permittedParticleTypes(particles)
+                .build();
+    }
+
+}
@@ -4,8 +4,10 @@ import net.llamasoftware.spigot.floatingpets.Constants;
 import net.llamasoftware.spigot.floatingpets.FloatingPets;
 import net.llamasoftware.spigot.floatingpets.api.model.FloatingPet;
 import net.llamasoftware.spigot.floatingpets.api.model.Pet;
+import net.llamasoftware.spigot.floatingpets.api.model.PetAnimation;
 import net.llamasoftware.spigot.floatingpets.api.model.Setting;
 import net.llamasoftware.spigot.floatingpets.locale.Locale;
+import net.llamasoftware.spigot.floatingpets.model.misc.WorldPolicy;
 import net.llamasoftware.spigot.floatingpets.model.skill.AttributeSkill;
 import net.llamasoftware.spigot.floatingpets.task.PetHealthRegenerationTask;
 import net.llamasoftware.spigot.floatingpets.task.PetTickTask;
@@ -47,7 +49,14 @@ public class PetManager {
                 despawnPet(previous.get(0));
         }
 
-        if(plugin.getConfigDefinition().isExcludedWorld(location.getWorld().getName())){
+        WorldPolicy policy = plugin.getWorldPolicyManager().getPolicy(location.getWorld());
+        if(!policy.isEnabled())
+            return;
+
+        if(isOverBudget(policy, onlineOwner, location)){
+            if(message)
+                plugin.getLocale().send(onlineOwner, "generic.world-limit", true);
+
             return;
         }
 
@@ -55,7 +64,7 @@ public class PetManager {
             plugin.getWgManager().allowSpawn(location);
         }
 
-        FloatingPet floatingPet = plugin.getNmsHelper().constructPet(location, onlineOwner, pet, plugin.getSettingsMap());
+        FloatingPet floatingPet = plugin.getNmsHelper().constructPet(location, onlineOwner, pet, plugin.getSettings());
 
         World world = location.getWorld();
         if(world == null)
@@ -85,25 +94,14 @@ public class PetManager {
         pet.setEntity(floatingPet);
         pet.attachNameTag();
 
-        switch (plugin.getSettingManager().getAnimationType()){
-            case CIRCLE:{
-                pet.setAnimation(new CircleAnimation(pet, onlineOwner));
-                break;
-            }
-
-            case FLOAT:
-                pet.setAnimation(new FloatAnimation(pet, onlineOwner));
-                break;
-            case NONE:
-                break;
-        }
+        pet.setAnimation(createAnimation(pet, onlineOwner));
 
         pet.getEntity().getEntity()
-                .setHealth(Double.parseDouble(plugin.getStringSetting(Setting.PET_DEFAULT_HEALTH)));
+                .setHealth(plugin.getDoubleSetting(Setting.PET_DEFAULT_HEALTH));
 
         AttributeInstance attribute = pet.getEntity().getEntity().getAttribute(Attribute.GENERIC_MAX_HEALTH);
         if(attribute != null) {
-            attribute.setBaseValue(Double.parseDouble(plugin.getStringSetting(Setting.PET_MAX_HEALTH)));
+            attribute.setBaseValue(plugin.getDoubleSetting(Setting.PET_MAX_HEALTH));
         }
 
         pet.getSkills().stream()
@@ -121,7 +119,7 @@ public class PetManager {
                     new PetHealthRegenerationTask(pet), 0, 20 * 2);
         }
 
-        nameTag.setCustomName(plugin.getUtility().formatTitle(pet, onlineOwner.hasPermission("floatingpets.name.color")));
+        nameTag.setCustomName(plugin.getUtility().formatTitle(pet, plugin.getPermissionManager().getSnapshot(onlineOwner).isColoredNames()));
         activePets.add(pet);
 
         if(message){
@@ -132,6 +130,51 @@ public class PetManager {
 
     }
 
+    /**
+     * Whether the world's pet limit per player or per chunk is already reached at the given location.
+     */
+    private boolean isOverBudget(WorldPolicy policy, Player onlineOwner, Location location){
+        if(policy.getMaxPetsPerPlayer() == Integer.MAX_VALUE && policy.getMaxPetsPerChunk() == Integer.MAX_VALUE)
+            return false;
+
+        World world = location.getWorld();
+        int chunkX  = location.getBlockX() >> 4;
+        int chunkZ  = location.getBlockZ() >> 4;
+
+        int owned = 0;
+        int inChunk = 0;
+        for (Pet active : activePets) {
+            if(active.getEntity() == null)
+                continue;
+
+            Location petLocation = active.getEntity().getEntity().getLocation();
+            if(petLocation.getWorld() != world)
+                continue;
+
+            if(active.getOwner().equals(onlineOwner.getUniqueId()))
+                owned++;
+
+            if(petLocation.getBlockX() >> 4 == chunkX && petLocation.getBlockZ() >> 4 == chunkZ)
+                inChunk++;
+        }
+
+        return owned >= policy.getMaxPetsPerPlayer() || inChunk >= policy.getMaxPetsPerChunk();
+    }
+
+    /**
+     * The still animation configured for pets, or null if pets are not animated.
+     */
+    public PetAnimation createAnimation(Pet pet, Player onlineOwner){
+        switch (plugin.getSettingManager().getAnimationType()){
+            case CIRCLE:
+                return new CircleAnimation(pet, onlineOwner);
+            case FLOAT:
+                return new FloatAnimation(pet, onlineOwner);
+            default:
+                return null;
+        }
+    }
+
     public void despawnPet(Pet pet){
         if(pet.getEntity() == null)
             return;
@@ -149,12 +192,12 @@ public class PetManager {
         return activePets.contains(pet) && pet.isAlive();
     }
 
-    public LinkedList<Pet> getPetsByOwner(Player player){
+    public List<Pet> getPetsByOwner(Player player){
         return activePets.stream()
                 .filter(pet -> pet.getOnlineOwner() != null
                         && pet.getOnlineOwner().getUniqueId().equals(player.getUniqueId()))
                 .sorted(Comparator.comparingInt(o -> o.getEntity().getEntity().getEntityId()))
-                .collect(Collectors.toCollection(LinkedList::new));
+                .collect(Collectors.toList());
     }
 
     public Optional<Pet> getPetByEntity(Entity entity, boolean specific) {
@@ -1,110 +1,362 @@
 package net.llamasoftware.spigot.floatingpets.manager.sql;
 
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.Getter;
+import net.llamasoftware.spigot.floatingpets.manager.metrics.StorageMetrics;
 
-import javax.sql.rowset.CachedRowSet;
-import javax.sql.rowset.RowSetFactory;
-import javax.sql.rowset.RowSetProvider;
+import java.io.File;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 public class MySQLManager {
 
-    private RowSetFactory rowSetFactory;
     private final HikariDataSource dataSource;
     private final Logger logger;
+    private final int fetchSize;
+    private final StorageMetrics metrics;
+    @Getter
+    private final SQLDialect dialect;
 
-    public MySQLManager(String server, int port, String databaseName, String username, String password, int poolSize, Logger logger){
-        this.logger = logger;
+    private final ExecutorService executor;
+    private volatile Thread executorThread;
+
+    public MySQLManager(String server, int port, String databaseName, String username, String password, int poolSize,
+                        int fetchSize, StorageMetrics metrics, Logger logger){
+        this.logger    = logger;
+        this.fetchSize = fetchSize;
+        this.metrics   = metrics;
+        this.dialect   = SQLDialect.MYSQL;
+        this.executor  = null;
         dataSource = new HikariDataSource();
-        dataSource.setJdbcUrl("jdbc:mysql://" + server + ":" + port + "/" + databaseName);
+        dataSource.setJdbcUrl("jdbc:mysql://" + server + ":" + port + "/" + databaseName
+                + "?rewriteBatchedStatements=true&useCursorFetch=true");
         dataSource.setUsername(username);
         dataSource.setPassword(password);
         dataSource.setMaximumPoolSize(poolSize);
+    }
 
-        try {
-            rowSetFactory = RowSetProvider.newFactory();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Embedded SQLite database. SQLite allows a single writer, so all access goes
+     * through one connection on a dedicated thread.
+     */
+    public MySQLManager(File databaseFile, int fetchSize, StorageMetrics metrics, Logger logger){
+        this.logger    = logger;
+        this.fetchSize = fetchSize;
+        this.metrics   = metrics;
+        this.dialect   = SQLDialect.SQLITE;
+        this.executor  = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FloatingPets-SQLite");
+            thread.setDaemon(true);
+            executorThread = thread;
+            return thread;
+        });
+
+        File parent = databaseFile.getAbsoluteFile().getParentFile();
+        if(parent != null && !parent.exists())
+            parent.mkdirs();
+
+        dataSource = new HikariDataSource();
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        dataSource.setJdbcUrl("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        dataSource.setConnectionInitSql("PRAGMA journal_mode=WAL");
+        dataSource.setMaximumPoolSize(1);
+    }
+
+    public void execute(String query, Object... values){
+        try (StorageMetrics.Timer timer = metrics.time("sql.execute", query)) {
+            submit(() -> {
+                try (Connection connection = getConnection();
+                     PreparedStatement preparedStatement = prepare(connection, query, values)) {
+
+                    preparedStatement.execute();
+                }
+
+                return null;
+            });
+
+            timer.success();
+        } catch (SQLException ex){
+            logger.warning("An error occurred while executing following sql query (EXECUTE): " + query);
+            ex.printStackTrace();
         }
     }
 
-    public void execute(String query, String... values){
-        Connection connection = null;
+    /**
+     * Maps every row of the result into a list. Use {@link #stream} when the rows can be handled one at a time.
+     */
+    public <T> List<T> query(String query, RowMapper<T> mapper, Object... values) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        stream(query, row -> rows.add(mapper.map(row)), values);
+        return rows;
+    }
+
+    /**
+     * Hands rows to the handler as they arrive from the server, fetching {@code fetchSize} rows per round trip.
+     * The connection, statement and result set are closed before this returns.
+     */
+    public void stream(String query, RowHandler handler, Object... values) throws SQLException {
+        try (StorageMetrics.Timer timer = metrics.time("sql.query", query)) {
+            submit(() -> {
+                try (Connection connection = getConnection();
+                     PreparedStatement statement = prepare(connection, query, values)) {
 
-        try {
-            connection = dataSource.getConnection();
-        } catch (SQLException e) {
-            e.printStackTrace();
+                    statement.setFetchSize(fetchSize);
+
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            handler.handle(resultSet);
+                        }
+                    }
+                }
+
+                return null;
+            });
+
+            timer.success();
+        } catch (SQLException ex){
+            logger.warning("An error occurred while executing following sql query (QUERY): " + query);
+            throw ex;
         }
+    }
 
-        if(connection == null)
+    /**
+     * Maps the rows of a table in the order of a unique key and hands them to the consumer one at a time,
+     * like {@link #stream}. On SQLite the rows are read in pages of {@code fetchSize}, each starting after
+     * the last key of the previous one, and handed over once a page is read. A consumer that blocks then
+     * never holds the only database thread and connection, and rows written in between shift no page.
+     * @param table the table, optionally with an alias
+     * @param condition condition on the rows, or null
+     * @param key the unique key column, qualified by the alias if there is one
+     */
+    public <T> void streamMapped(String table, String condition, String key, RowMapper<T> mapper,
+                                 Consumer<T> consumer, Object... values) throws SQLException {
+        String select = "SELECT * FROM " + table;
+
+        if(executor == null){
+            stream(select + (condition == null ? "" : " WHERE " + condition) + " ORDER BY " + key,
+                    row -> consumer.accept(mapper.map(row)), values);
             return;
+        }
 
-        try {
+        String label = key.substring(key.lastIndexOf('.') + 1);
+        String first = select + (condition == null ? "" : " WHERE " + condition) + " ORDER BY " + key + " LIMIT ?";
+        String next  = select + " WHERE " + (condition == null ? "" : "(" + condition + ") AND ") + key + " > ?"
+                + " ORDER BY " + key + " LIMIT ?";
+
+        Object lastKey = null;
+        while (true){
+            Object[] paged = Arrays.copyOf(values, values.length + (lastKey == null ? 1 : 2));
+            if(lastKey != null)
+                paged[values.length] = lastKey;
+            paged[paged.length - 1] = fetchSize;
+
+            List<Object[]> page = query(lastKey == null ? first : next,
+                    row -> new Object[]{row.getObject(label), mapper.map(row)}, paged);
 
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
-            for (int i = 0; i < values.length; i++) {
-                preparedStatement.setObject(i + 1, values[i]);
+            for (Object[] row : page) {
+                @SuppressWarnings("unchecked")
+                T mapped = (T) row[1];
+                consumer.accept(mapped);
             }
 
-            preparedStatement.execute();
+            if(page.size() < fetchSize)
+                return;
+
+            lastKey = page.get(page.size() - 1)[0];
+        }
+    }
+
+    private PreparedStatement prepare(Connection connection, String query, Object... values) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+
+        for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+        }
+
+        return statement;
+    }
+
+    /**
+     * Executes the statement once per parameter set as a single JDBC batch in one transaction.
+     * With rewriteBatchedStatements the driver sends inserts as multi-row statements.
+     */
+    public boolean executeBatch(String query, List<Object[]> parameters){
+        if(parameters.isEmpty())
+            return true;
+
+        return transaction(transaction -> transaction.executeBatch(query, parameters));
+    }
 
-            connection.close();
-            preparedStatement.close();
+    /**
+     * Runs the work on a single connection, committing if it completes and rolling back otherwise.
+     * @return whether the transaction was committed
+     */
+    public boolean transaction(TransactionWork work){
+        try (StorageMetrics.Timer timer = metrics.time("sql.transaction")) {
+            boolean committed = submit(() -> {
+                try (Connection connection = getConnection()) {
+                    connection.setAutoCommit(false);
 
+                    try {
+                        work.execute(new Transaction(connection));
+                        connection.commit();
+                        return true;
+                    } catch (SQLException | RuntimeException ex){
+                        connection.rollback();
+                        logger.warning("An error occurred in a transaction, rolled back: " + ex.getMessage());
+                        ex.printStackTrace();
+                        return false;
+                    } finally {
+                        connection.setAutoCommit(true);
+                    }
+                }
+            });
+
+            if(committed)
+                timer.success();
+
+            return committed;
         } catch (SQLException ex){
-            logger.warning("An error occurred while executing following sql query (EXECUTE): " + query);
+            logger.warning("An error occurred while opening a transaction");
             ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool, recording how long it had to wait for one.
+     */
+    private Connection getConnection() throws SQLException {
+        try (StorageMetrics.Timer timer = metrics.time("sql.pool_wait")) {
+            Connection connection = dataSource.getConnection();
+            timer.success();
+            return connection;
         }
     }
 
-    public CachedRowSet query(String query, String... values){
+    /**
+     * Current state of the connection pool, empty until the pool has started.
+     */
+    public Map<String, Integer> getPoolStats(){
+        Map<String, Integer> stats = new LinkedHashMap<>();
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if(pool == null)
+            return stats;
+
+        stats.put("active", pool.getActiveConnections());
+        stats.put("idle", pool.getIdleConnections());
+        stats.put("total", pool.getTotalConnections());
+        stats.put("waiting", pool.getThreadsAwaitingConnection());
+        return stats;
+    }
+
+    /**
+     * Runs the task on the dedicated database thread if there is one and waits for it.
+     */
+    private <T> T submit(SQLTask<T> task) throws SQLException {
+        if(executor == null || Thread.currentThread() == executorThread)
+            return task.run();
 
-        Connection connection = null;
         try {
-            connection = dataSource.getConnection();
-        } catch (SQLException e) {
-            e.printStackTrace();
+            return executor.submit(task::run).get();
+        } catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database thread", ex);
+        } catch (ExecutionException ex){
+            Throwable cause = ex.getCause();
+            if(cause instanceof SQLException)
+                throw (SQLException) cause;
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+
+            throw new SQLException(cause);
         }
+    }
 
-        if(connection == null)
-            return null;
+    public void close(){
+        dataSource.close();
 
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-        CachedRowSet rowSet = null;
+        if(executor != null)
+            executor.shutdown();
+    }
 
-        try {
-            statement = connection.prepareStatement(query);
+    @FunctionalInterface
+    private interface SQLTask<T> {
+
+        T run() throws SQLException;
+
+    }
+
+    @FunctionalInterface
+    public interface RowMapper<T> {
+
+        T map(ResultSet row) throws SQLException;
+
+    }
+
+    @FunctionalInterface
+    public interface RowHandler {
+
+        void handle(ResultSet row) throws SQLException;
+
+    }
+
+    @FunctionalInterface
+    public interface TransactionWork {
+
+        void execute(Transaction transaction) throws SQLException;
+
+    }
+
+    public static class Transaction {
 
-            for (int i = 0; i < values.length; i++) {
-                statement.setObject(i + 1, values[i]);
+        private final Connection connection;
+
+        private Transaction(Connection connection){
+            this.connection = connection;
+        }
+
+        public void execute(String query, Object... values) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                for (int i = 0; i < values.length; i++) {
+                    statement.setObject(i + 1, values[i]);
+                }
+
+                statement.execute();
             }
+        }
 
-            resultSet = statement.executeQuery();
+        public void executeBatch(String query, List<Object[]> parameters) throws SQLException {
+            if(parameters.isEmpty())
+                return;
 
-            rowSet = rowSetFactory.createCachedRowSet();
-            rowSet.populate(resultSet);
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                for (Object[] values : parameters) {
+                    for (int i = 0; i < values.length; i++) {
+                        statement.setObject(i + 1, values[i]);
+                    }
 
-        } catch (SQLException ex){
-            logger.warning("An error occurred while executing following sql query (QUERY): " + query);
-            ex.printStackTrace();
-        } finally {
-            try {
-                if(resultSet != null)
-                    resultSet.close();
-                if(statement != null)
-                    statement.close();
-            } catch (SQLException ex){
-                logger.warning("An error occurred while closing SQL connection");
+                    statement.addBatch();
+                }
+
+                statement.executeBatch();
             }
         }
 
-        return rowSet;
     }
 
-}
\ No newline at end of file
+}
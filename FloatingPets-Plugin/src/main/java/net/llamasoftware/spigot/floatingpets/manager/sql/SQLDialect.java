@@ -0,0 +1,28 @@
+package net.llamasoftware.spigot.floatingpets.manager.sql;
+
+import lombok.Getter;
+
+/**
+ * The bits of SQL that differ between the supported databases.
+ */
+public enum SQLDialect {
+
+    MYSQL("int auto_increment primary key", true,
+            "SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?"),
+    SQLITE("integer primary key autoincrement", false,
+            "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?");
+
+    @Getter
+    private final String autoIncrementKey;
+    @Getter
+    private final boolean inlineIndexes;
+    @Getter
+    private final String tableExistsQuery;
+
+    SQLDialect(String autoIncrementKey, boolean inlineIndexes, String tableExistsQuery){
+        this.autoIncrementKey = autoIncrementKey;
+        this.inlineIndexes    = inlineIndexes;
+        this.tableExistsQuery = tableExistsQuery;
+    }
+
+}
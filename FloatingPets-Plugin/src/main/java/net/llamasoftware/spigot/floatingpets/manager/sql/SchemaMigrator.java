@@ -0,0 +1,341 @@
+package net.llamasoftware.spigot.floatingpets.manager.sql;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.llamasoftware.spigot.floatingpets.model.pet.PetRecord;
+import net.llamasoftware.spigot.floatingpets.util.Utility;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Brings the pet and type tables up to the current schema version.
+ *
+ * Version 1 is the original layout with TEXT columns everywhere. Version 2 stores
+ * UUIDs as BINARY(16), keys pets by id with an index on owner, keeps skills in
+ * their own table and stores the type price as a number. Version 3 widens the type
+ * name to the length of pet names, version 2 cut longer legacy names off.
+ */
+public class SchemaMigrator {
+
+    public static final int CURRENT_VERSION = 3;
+
+    private static final int NAME_LENGTH = 255;
+
+    private static final String LEGACY_SUFFIX    = "_v1";
+    private static final String MIGRATION_SUFFIX = "_v2";
+
+    private final MySQLManager mySqlManager;
+    private final String prefix;
+    private final int chunkSize;
+    private final Logger logger;
+
+    public SchemaMigrator(MySQLManager mySqlManager, String prefix, int chunkSize, Logger logger){
+        this.mySqlManager = mySqlManager;
+        this.prefix       = prefix;
+        this.chunkSize    = chunkSize;
+        this.logger       = logger;
+    }
+
+    /**
+     * The schema version of the existing tables, read without creating or changing anything.
+     * 0 if there is no pet table yet.
+     */
+    public int detectVersion(){
+        if(tableExists(table("schema_version"))){
+            int version = readVersion();
+            if(version >= 2)
+                return version;
+        }
+
+        if(!tableExists(table("pet")))
+            return 0;
+
+        // Swapped in by an interrupted migration that didn't record its version
+        return tableExists(table("pet" + LEGACY_SUFFIX)) ? 2 : 1;
+    }
+
+    public void migrate(){
+        mySqlManager.execute("create table if not exists " + table("schema_version") + " (\n" +
+                "    version int not null\n" +
+                ");");
+
+        int version = readVersion();
+
+        if(version == 0){
+            version = tableExists(table("pet")) ? 1 : CURRENT_VERSION;
+            mySqlManager.execute("INSERT INTO " + table("schema_version") + " (version) VALUES(?)", version);
+        }
+
+        if(version < 2)
+            migrateToV2();
+        if(version < 3)
+            migrateToV3();
+
+        createTables("");
+    }
+
+    private void createTables(String suffix){
+        SQLDialect dialect = mySqlManager.getDialect();
+        String ownerIndex  = table("pet" + suffix) + "_owner";
+
+        mySqlManager.execute("" +
+                "create table if not exists " + table("pet" + suffix) + " (\n" +
+                "    uniqueId       binary(16)   not null\n" +
+                "        primary key,\n" +
+                "    owner          binary(16)   not null,\n" +
+                "    type           binary(16)   not null,\n" +
+                "    name           varchar(" + NAME_LENGTH + ") not null,\n" +
+                "    particle       varchar(64)  null,\n" +
+                "    particle_speed int          not null default 0" +
+                (dialect.isInlineIndexes() ? ",\n    index " + ownerIndex + " (owner)\n" : "\n") +
+                ");");
+
+        if(!dialect.isInlineIndexes())
+            mySqlManager.execute("create index if not exists " + ownerIndex + " on " + table("pet" + suffix) + " (owner);");
+
+        mySqlManager.execute("" +
+                "create table if not exists " + table("pet_skill") + " (\n" +
+                "    pet   binary(16)  not null,\n" +
+                "    skill varchar(32) not null,\n" +
+                "    level int         not null,\n" +
+                "    primary key (pet, skill)\n" +
+                ");");
+
+        mySqlManager.execute("" +
+                "create table if not exists " + table("type" + suffix) + " (\n" +
+                "    uniqueId binary(16)    not null\n" +
+                "        primary key,\n" +
+                "    name     varchar(" + NAME_LENGTH + ")  not null,\n" +
+                "    texture  text          not null,\n" +
+                "    category varchar(64)   null,\n" +
+                "    price    decimal(15,2) not null default 0\n" +
+                ");");
+    }
+
+    /**
+     * Copies the version 1 tables into new tables chunk by chunk, then swaps them in with a single
+     * atomic rename. The old tables are kept with a '_v1' suffix. Copies are idempotent, so an
+     * interrupted migration simply starts over on the next boot.
+     */
+    private void migrateToV2(){
+        long start = System.currentTimeMillis();
+        logger.info("Migrating MySQL tables to schema version 2");
+
+        if(!tableExists(table("pet" + LEGACY_SUFFIX))){
+            createTables(MIGRATION_SUFFIX);
+
+            long pets  = copyPets();
+            long types = copyTypes();
+
+            // The swap and the version bump must both happen, or the version must stay behind
+            updateSchema(2, "RENAME TABLE "
+                    + table("pet") + " TO " + table("pet" + LEGACY_SUFFIX) + ", "
+                    + table("pet" + MIGRATION_SUFFIX) + " TO " + table("pet") + ", "
+                    + table("type") + " TO " + table("type" + LEGACY_SUFFIX) + ", "
+                    + table("type" + MIGRATION_SUFFIX) + " TO " + table("type"));
+
+            logger.info("  Migrated " + pets + " pet(s) and " + types + " type(s)");
+        } else {
+            updateSchema(2, null);
+        }
+
+        logger.info("  Schema version 2 ready (" + (System.currentTimeMillis() - start) + " ms)");
+    }
+
+    /**
+     * SQLite does not enforce column lengths, so only MySQL tables are altered.
+     */
+    private void migrateToV3(){
+        boolean alter = mySqlManager.getDialect() == SQLDialect.MYSQL && tableExists(table("type"));
+        updateSchema(3, alter ? "ALTER TABLE " + table("type") + " MODIFY name varchar(" + NAME_LENGTH + ") not null" : null);
+        logger.info("Schema version 3 ready");
+    }
+
+    /**
+     * Runs the schema change, if any, and records the new version in one transaction. Fails instead of
+     * recording the version when the change fails, so it is attempted again on the next start.
+     */
+    private void updateSchema(int version, String change){
+        boolean committed = mySqlManager.transaction(transaction -> {
+            if(change != null)
+                transaction.execute(change);
+
+            transaction.execute("UPDATE " + table("schema_version") + " SET version = ?", version);
+        });
+
+        if(!committed)
+            throw new IllegalStateException("Unable to update the MySQL tables to schema version " + version);
+    }
+
+    private long copyPets(){
+        long lastRecord = 0;
+        long copied     = 0;
+
+        while (true){
+            List<Object[]> pets   = new ArrayList<>();
+            List<Object[]> skills = new ArrayList<>();
+            long[] cursor = {lastRecord, 0};
+
+            try {
+                mySqlManager.stream("SELECT * FROM " + table("pet")
+                        + " WHERE recordId > ? ORDER BY recordId LIMIT ?", row -> {
+                    cursor[0] = row.getLong("recordId");
+                    cursor[1]++;
+
+                    try {
+                        readPet(row, pets, skills);
+                    } catch (RuntimeException ex){
+                        logger.warning("  Skipping malformed pet '" + row.getString("uniqueId") + "'");
+                    }
+                }, lastRecord, chunkSize);
+            } catch (SQLException ex){
+                throw new IllegalStateException("Unable to migrate " + table("pet"), ex);
+            }
+
+            lastRecord = cursor[0];
+            int count = (int) cursor[1];
+
+            boolean committed = mySqlManager.transaction(transaction -> {
+                transaction.executeBatch("INSERT IGNORE INTO " + table("pet" + MIGRATION_SUFFIX)
+                        + " (uniqueId, owner, type, name, particle, particle_speed) VALUES(?, ?, ?, ?, ?, ?)", pets);
+                transaction.executeBatch("INSERT IGNORE INTO " + table("pet_skill")
+                        + " (pet, skill, level) VALUES(?, ?, ?)", skills);
+            });
+
+            if(!committed)
+                throw new IllegalStateException("Unable to write migrated pets to " + table("pet" + MIGRATION_SUFFIX));
+
+            copied += count;
+            if(count < chunkSize)
+                return copied;
+
+            logger.info("  Copied " + copied + " pet(s)");
+        }
+    }
+
+    private void readPet(ResultSet row, List<Object[]> pets, List<Object[]> skills) throws SQLException {
+        PetRecord record = readLegacyPet(row);
+        byte[] uniqueId  = Utility.serializeUniqueId(record.getUniqueId());
+
+        List<Object[]> petSkills = new ArrayList<>();
+        for (String skill : record.getSkills()) {
+            String[] data = skill.split(":");
+            petSkills.add(new Object[]{uniqueId, data[0], Integer.parseInt(data[1])});
+        }
+
+        pets.add(new Object[]{uniqueId,
+                Utility.serializeUniqueId(record.getOwner()),
+                Utility.serializeUniqueId(record.getType()),
+                checkName(record.getName(), "pet", record.getUniqueId().toString()),
+                record.getParticle(), record.getParticleSpeed()});
+        skills.addAll(petSkills);
+    }
+
+    /**
+     * Reads a row of the version 1 pet table.
+     */
+    public static PetRecord readLegacyPet(ResultSet row) throws SQLException {
+        String particle = null;
+        int particleSpeed = 0;
+        String particleString = row.getString("particle");
+        if(particleString != null && !particleString.isEmpty()){
+            JsonObject particleObject = new JsonParser().parse(particleString).getAsJsonObject();
+            particle      = particleObject.get("particle").getAsString();
+            particleSpeed = particleObject.get("speed").getAsInt();
+        }
+
+        List<String> skills = new ArrayList<>();
+        String skillString = row.getString("skills");
+        if(skillString != null && !skillString.isEmpty())
+            skills.addAll(Arrays.asList(skillString.split("---")));
+
+        return PetRecord.builder()
+                .uniqueId(UUID.fromString(row.getString("uniqueId")))
+                .owner(UUID.fromString(row.getString("owner")))
+                .type(UUID.fromString(row.getString("type")))
+                .name(row.getString("name"))
+                .skills(skills)
+                .particle(particle)
+                .particleSpeed(particleSpeed)
+                .extra(new HashMap<>())
+                .build();
+    }
+
+    private long copyTypes(){
+        long lastRecord = 0;
+        long copied     = 0;
+
+        while (true){
+            List<Object[]> types = new ArrayList<>();
+            long[] cursor = {lastRecord};
+
+            try {
+                mySqlManager.stream("SELECT * FROM " + table("type")
+                        + " WHERE recordId > ? ORDER BY recordId LIMIT ?", row -> {
+                    cursor[0] = row.getLong("recordId");
+
+                    String price = row.getString("price");
+                    types.add(new Object[]{Utility.serializeUniqueId(UUID.fromString(row.getString("uniqueId"))),
+                            checkName(row.getString("name"), "type", row.getString("uniqueId")),
+                            row.getString("texture"), row.getString("category"),
+                            price == null || price.isEmpty() ? 0 : Double.parseDouble(price)});
+                }, lastRecord, chunkSize);
+            } catch (SQLException ex){
+                throw new IllegalStateException("Unable to migrate " + table("type"), ex);
+            }
+
+            lastRecord = cursor[0];
+
+            if(!mySqlManager.executeBatch("INSERT IGNORE INTO " + table("type" + MIGRATION_SUFFIX)
+                    + " (uniqueId, name, texture, category, price) VALUES(?, ?, ?, ?, ?)", types))
+                throw new IllegalStateException("Unable to write migrated types to " + table("type" + MIGRATION_SUFFIX));
+
+            copied += types.size();
+            if(types.size() < chunkSize)
+                return copied;
+        }
+    }
+
+    /**
+     * Legacy names are TEXT, anything longer than the new column is shortened with a warning
+     * instead of being cut off silently or failing the chunk.
+     */
+    private String checkName(String name, String kind, String uniqueId){
+        if(name == null || name.length() <= NAME_LENGTH)
+            return name;
+
+        logger.warning("  Name of " + kind + " '" + uniqueId + "' is longer than " + NAME_LENGTH
+                + " characters, shortening it");
+        return name.substring(0, NAME_LENGTH);
+    }
+
+    private int readVersion(){
+        try {
+            List<Integer> versions = mySqlManager.query("SELECT version FROM " + table("schema_version"),
+                    row -> row.getInt("version"));
+            return versions.isEmpty() ? 0 : versions.get(0);
+        } catch (SQLException ex){
+            throw new IllegalStateException("Unable to read schema version", ex);
+        }
+    }
+
+    private boolean tableExists(String name){
+        try {
+            return !mySqlManager.query(mySqlManager.getDialect().getTableExistsQuery(), row -> true, name).isEmpty();
+        } catch (SQLException ex){
+            throw new IllegalStateException("Unable to look up table " + name, ex);
+        }
+    }
+
+    private String table(String name){
+        return prefix + name;
+    }
+
+}
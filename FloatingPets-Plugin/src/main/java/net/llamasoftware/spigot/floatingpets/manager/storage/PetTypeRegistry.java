@@ -0,0 +1,168 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage;
+
+import net.llamasoftware.spigot.floatingpets.api.model.PetCategory;
+import net.llamasoftware.spigot.floatingpets.api.model.PetType;
+import org.bukkit.permissions.Permissible;
+
+import java.util.*;
+
+/**
+ * Catalog of loaded pet types, indexed by id, lower case name and category.
+ *
+ * Every change builds a new immutable catalog which is swapped in at once,
+ * so lookups never lock and never see a half updated catalog.
+ */
+public class PetTypeRegistry {
+
+    private volatile Catalog catalog = new Catalog(Collections.emptyList());
+    private final Runnable onChange;
+
+    /**
+     * @param onChange run after every change of the catalog
+     */
+    public PetTypeRegistry(Runnable onChange){
+        this.onChange = onChange;
+    }
+
+    public List<PetType> getTypes(){
+        return catalog.types;
+    }
+
+    public int size(){
+        return catalog.types.size();
+    }
+
+    public Optional<PetType> getTypeByUniqueId(UUID uniqueId){
+        return Optional.ofNullable(catalog.byId.get(uniqueId));
+    }
+
+    public Optional<PetType> getTypeByName(String name){
+        return Optional.ofNullable(catalog.byName.get(name.toLowerCase()));
+    }
+
+    public List<PetType> getTypesByCategory(PetCategory category){
+        return catalog.byCategory.getOrDefault(getCategoryId(category), CategoryView.EMPTY).types;
+    }
+
+    /**
+     * Types whose name or category name contains the query, best matches first.
+     */
+    public List<PetType> search(String query){
+        return catalog.getSearchIndex().search(query);
+    }
+
+    /**
+     * Types the given player or sender has the permission of, using the precomputed permission nodes.
+     */
+    public List<PetType> getPermittedTypes(Permissible permissible){
+        return catalog.all.filter(permissible);
+    }
+
+    public List<PetType> getPermittedTypes(Permissible permissible, PetCategory category){
+        return catalog.byCategory.getOrDefault(getCategoryId(category), CategoryView.EMPTY).filter(permissible);
+    }
+
+    public synchronized void add(PetType type){
+        List<PetType> types = new ArrayList<>(catalog.types);
+        types.add(type);
+        swap(types);
+    }
+
+    public synchronized void addAll(Collection<PetType> added){
+        List<PetType> types = new ArrayList<>(catalog.types);
+        types.addAll(added);
+        swap(types);
+    }
+
+    public synchronized void remove(PetType type){
+        List<PetType> types = new ArrayList<>(catalog.types);
+        types.remove(type);
+        swap(types);
+    }
+
+    public synchronized void clear(){
+        swap(Collections.emptyList());
+    }
+
+    private void swap(List<PetType> types){
+        catalog = new Catalog(types);
+        onChange.run();
+    }
+
+    private static String getCategoryId(PetCategory category){
+        return category == null ? null : category.getId();
+    }
+
+    private static class Catalog {
+
+        private final List<PetType> types;
+        private final Map<UUID, PetType> byId;
+        private final Map<String, PetType> byName;
+        private final Map<String, CategoryView> byCategory;
+        private final CategoryView all;
+        private volatile TypeSearchIndex searchIndex;
+
+        private Catalog(List<PetType> types){
+            this.types  = Collections.unmodifiableList(new ArrayList<>(types));
+            this.byId   = new HashMap<>();
+            this.byName = new HashMap<>();
+            this.all    = new CategoryView(this.types);
+
+            Map<String, List<PetType>> categories = new HashMap<>();
+            for (PetType type : this.types) {
+                byId.putIfAbsent(type.getUniqueId(), type);
+                byName.putIfAbsent(type.getName().toLowerCase(), type);
+                categories.computeIfAbsent(getCategoryId(type.getCategory()), id -> new ArrayList<>()).add(type);
+            }
+
+            this.byCategory = new HashMap<>();
+            categories.forEach((id, categoryTypes) -> byCategory.put(id, new CategoryView(categoryTypes)));
+        }
+
+        /**
+         * Built on the first search, catalogs that are never searched don't pay for it.
+         */
+        private TypeSearchIndex getSearchIndex(){
+            TypeSearchIndex index = searchIndex;
+            if(index != null)
+                return index;
+
+            synchronized (this){
+                if(searchIndex == null)
+                    searchIndex = new TypeSearchIndex(types);
+
+                return searchIndex;
+            }
+        }
+
+    }
+
+    private static class CategoryView {
+
+        private static final CategoryView EMPTY = new CategoryView(Collections.emptyList());
+
+        private final List<PetType> types;
+        private final String[] permissions;
+
+        private CategoryView(List<PetType> types){
+            this.types       = Collections.unmodifiableList(new ArrayList<>(types));
+            this.permissions = new String[types.size()];
+
+            for (int i = 0; i < permissions.length; i++) {
+                permissions[i] = this.types.get(i).getPermission();
+            }
+        }
+
+        private List<PetType> filter(Permissible permissible){
+            List<PetType> permitted = new ArrayList<>(types.size());
+            for (int i = 0; i < permissions.length; i++) {
+                if(permissible.hasPermission(permissions[i]))
+                    permitted.add(types.get(i));
+            }
+
+            return permitted;
+        }
+
+    }
+
+}
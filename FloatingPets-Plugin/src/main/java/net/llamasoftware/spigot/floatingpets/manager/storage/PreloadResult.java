@@ -0,0 +1,28 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage;
+
+import lombok.Getter;
+import net.llamasoftware.spigot.floatingpets.api.model.Pet;
+import net.llamasoftware.spigot.floatingpets.api.model.PetType;
+import net.llamasoftware.spigot.floatingpets.model.misc.Food;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a single preload read. Owned by the preload thread while it runs,
+ * then installed into the caches by the main thread.
+ */
+public class PreloadResult {
+
+    @Getter
+    private final Map<String, Object> locale = new HashMap<>();
+    @Getter
+    private final List<PetType> types = new ArrayList<>();
+    @Getter
+    private final List<Food> foodItems = new ArrayList<>();
+    @Getter
+    private final List<Pet> pets = new ArrayList<>();
+
+}
@@ -2,73 +2,278 @@ package net.llamasoftware.spigot.floatingpets.manager.storage;
 
 import net.llamasoftware.spigot.floatingpets.FloatingPets;
 import net.llamasoftware.spigot.floatingpets.api.model.Pet;
+import net.llamasoftware.spigot.floatingpets.api.model.PetCategory;
 import net.llamasoftware.spigot.floatingpets.api.model.PetType;
 import net.llamasoftware.spigot.floatingpets.api.model.Setting;
+import net.llamasoftware.spigot.floatingpets.api.model.Skill;
 import net.llamasoftware.spigot.floatingpets.locale.Locale;
+import net.llamasoftware.spigot.floatingpets.manager.metrics.StorageMetrics;
+import net.llamasoftware.spigot.floatingpets.manager.storage.queue.PendingWrite;
+import net.llamasoftware.spigot.floatingpets.manager.storage.queue.WriteBehindQueue;
+import net.llamasoftware.spigot.floatingpets.manager.storage.snapshot.CacheSnapshot;
 import net.llamasoftware.spigot.floatingpets.model.misc.Cooldown;
 import net.llamasoftware.spigot.floatingpets.model.misc.Food;
+import net.llamasoftware.spigot.floatingpets.model.pet.IParticle;
 import net.llamasoftware.spigot.floatingpets.model.pet.IPet;
+import net.llamasoftware.spigot.floatingpets.model.pet.PetRecord;
+import net.llamasoftware.spigot.floatingpets.util.Utility;
 import lombok.Getter;
+import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.function.Supplier;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public abstract class StorageManager {
 
-    protected final LinkedList<Pet> cachedPets;
+    private final Map<UUID, List<Pet>> cachedPets;
+    private final Map<UUID, Pet> cachedPetsById;
     @Getter
-    public final List<PetType> cachedTypes;
+    protected final PetTypeRegistry typeRegistry;
     protected final List<Food> cachedFoodItems;
     protected final Map<String, Object> cachedLocaleData;
 
+    @Getter
+    private final WriteBehindQueue writeQueue;
+    private final StorageMetrics metrics;
     private final FloatingPets plugin;
 
+    private final Set<UUID> loadedOwners;
+    private final Map<UUID, List<PetRecord>> prefetched;
+    private final Map<UUID, CompletableFuture<List<Pet>>> loading;
+    private final Map<UUID, BukkitTask> evictions;
+
+    @Getter
+    private CompletableFuture<Void> ready;
+    private CompletableFuture<Void> preloading;
+    private final Set<UUID> removedWhileLoading;
+    private int loadGeneration;
+
     protected StorageManager(FloatingPets plugin) {
-        cachedPets       = new LinkedList<>();
-        cachedTypes      = new ArrayList<>();
+        cachedPets       = new HashMap<>();
+        cachedPetsById   = new HashMap<>();
+        typeRegistry     = new PetTypeRegistry(this::catalogChanged);
         cachedFoodItems  = new ArrayList<>();
         cachedLocaleData = new HashMap<>();
+        loadedOwners     = new HashSet<>();
+        prefetched       = new ConcurrentHashMap<>();
+        loading          = new HashMap<>();
+        evictions        = new HashMap<>();
+        ready            = CompletableFuture.completedFuture(null);
+        preloading       = CompletableFuture.completedFuture(null);
+        removedWhileLoading = ConcurrentHashMap.newKeySet();
         this.plugin = plugin;
+        this.metrics = plugin.getStorageMetrics();
+
+        writeQueue = new WriteBehindQueue(this::writePetsTimed, plugin.getLogger(),
+                plugin.getIntSetting(Setting.GENERAL_STORAGE_WRITE_BEHIND_QUEUE_SIZE),
+                plugin.getIntSetting(Setting.GENERAL_STORAGE_WRITE_BEHIND_BATCH_SIZE),
+                plugin.getLongSetting(Setting.GENERAL_STORAGE_WRITE_BEHIND_INTERVAL));
+        writeQueue.start();
     }
 
+    /**
+     * Reloads all caches. Preloads run in parallel on worker threads, respecting the dependencies between them.
+     * Locale, types and food items are ready when this returns, pets once {@link #getReady()} completes.
+     */
     public void load(){
+        awaitPreload(preloading);
+
+        writeQueue.flush();
         setup();
         cachedFoodItems.clear();
         cachedPets.clear();
-        cachedTypes.clear();
+        cachedPetsById.clear();
+        typeRegistry.clear();
         cachedLocaleData.clear();
+        loadedOwners.clear();
+        prefetched.clear();
 
-        Arrays.stream(StorageManager.Type.values())
-                .filter(plugin::isPreload)
-                .forEach(this::preload);
+        // Spawned pets stay the cached instances, loaded copies of them are dropped
+        plugin.getPetManager().getActivePets().forEach(pet -> storePet(pet, false));
+
+        int generation = ++loadGeneration;
+        removedWhileLoading.clear();
+        CompletableFuture<Void> loaded = ready = new CompletableFuture<>();
+
+        if(loadSnapshot(generation, loaded))
+            return;
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(Type.values().length, Runtime.getRuntime().availableProcessors()), runnable -> {
+                    Thread thread = new Thread(runnable, "FloatingPets-Preload");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        // Each preload fills its own result, the main thread installs it. Dependents wait for the install.
+        Map<Type, CompletableFuture<PreloadResult>> tasks = new EnumMap<>(Type.class);
+        Map<Type, CompletableFuture<Void>> installed = new EnumMap<>(Type.class);
+        for (Type type : Type.values()) {
+            if(!plugin.isPreload(type))
+                continue;
+
+            CompletableFuture<?>[] dependencies = Arrays.stream(type.getDependencies())
+                    .map(installed::get)
+                    .filter(Objects::nonNull)
+                    .toArray(CompletableFuture[]::new);
+
+            CompletableFuture<PreloadResult> task = CompletableFuture.allOf(dependencies)
+                    .thenApplyAsync(result -> preloadTimed(type), executor);
+            task.whenComplete((result, ex) -> {
+                if(ex != null)
+                    plugin.getLogger().warning("Unable to preload " + type.name().toLowerCase() + ": " + ex.getMessage());
+            });
+
+            CompletableFuture<Void> install = type.isAwaited()
+                    ? new CompletableFuture<Void>()
+                    : task.<Void>handle((result, ex) -> null);
+
+            tasks.put(type, task);
+            installed.put(type, install);
+        }
+
+        preloading = CompletableFuture.allOf(tasks.values().toArray(new CompletableFuture[0]));
+        preloading.whenComplete((result, ex) -> executor.shutdown());
+
+        tasks.forEach((type, task) -> {
+            if(!type.isAwaited())
+                return;
+
+            PreloadResult result = awaitPreload(task);
+            if(result != null)
+                install(type, result);
+
+            installed.get(type).complete(null);
+        });
+
+        rebindActivePets();
+        reloadLocale();
+
+        CompletableFuture<PreloadResult> pets = tasks.get(Type.PET);
+        preloading.whenComplete((result, ex) -> {
+            PreloadResult preloaded = pets == null ? null : awaitPreload(pets);
+            finishLoad(generation, loaded, preloaded == null ? Collections.emptyList() : preloaded.getPets());
+        });
+    }
+
+    /**
+     * Copies a finished preload into the caches. Pets are cached separately once all of them are read.
+     */
+    private void install(Type type, PreloadResult result){
+        switch (type){
+            case LOCALE:
+                cachedLocaleData.putAll(result.getLocale());
+                break;
+            case TYPE:
+                typeRegistry.addAll(result.getTypes());
+                break;
+            case MISC:
+                cachedFoodItems.addAll(result.getFoodItems());
+                break;
+            default:
+        }
+    }
+
+    /**
+     * Points spawned pets at the reloaded instances of their types, so comparisons with the registry keep working.
+     */
+    private void rebindActivePets(){
+        for (Pet pet : plugin.getPetManager().getActivePets()) {
+            getTypeByUniqueId(pet.getType().getUniqueId()).ifPresent(pet::setType);
+        }
+    }
+
+    private PreloadResult preloadTimed(Type type){
+        try (StorageMetrics.Timer timer = metrics.time("preload." + type.name().toLowerCase())) {
+            PreloadResult result = new PreloadResult();
+            preload(type, result);
+            timer.success();
+            return result;
+        }
+    }
+
+    private void finishLoad(int generation, CompletableFuture<Void> loaded, List<Pet> staged){
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if(generation != loadGeneration)
+                return;
+
+            // Skip pets already cached, or removed after the preload read them
+            staged.stream()
+                    .filter(pet -> !cachedPetsById.containsKey(pet.getUniqueId()))
+                    .filter(pet -> !removedWhileLoading.contains(pet.getUniqueId()))
+                    .forEach(pet -> storePet(pet, false));
+            removedWhileLoading.clear();
+            loaded.complete(null);
+
+            if(isLazy())
+                Bukkit.getOnlinePlayers().forEach(player -> loadPets(player.getUniqueId()));
+        });
+    }
+
+    /**
+     * The result of the task, or null if it failed.
+     */
+    private <T> T awaitPreload(CompletableFuture<T> task){
+        try {
+            return task.join();
+        } catch (CompletionException | CancellationException ignored){
+            // Already logged by the failed preload
+            return null;
+        }
     }
 
     public abstract void setup();
 
-    public abstract void preload(Type type);
+    /**
+     * Reads the given data into the result. Called on a preload thread, must not touch the caches.
+     */
+    public abstract void preload(Type type, PreloadResult result);
+
+    /**
+     * Flushes pending pet writes and stops the storage thread.
+     */
+    public void shutdown(){
+        writeQueue.shutdown();
+    }
 
     /* Pet storage */
 
-    public LinkedList<Pet> getPetsByOwner(UUID uniqueId) {
-        Supplier<Stream<Pet>> streamSupplier = () -> cachedPets.stream()
-                .filter(pet -> pet.getOwner().equals(uniqueId));
+    /**
+     * Pets of the given owner, spawned pets first ordered by entity id, then the others in the order they were stored.
+     */
+    public List<Pet> getPetsByOwner(UUID uniqueId) {
+        List<Pet> owned = cachedPets.get(uniqueId);
+        if(owned == null)
+            return new ArrayList<>();
+
+        List<Pet> pets = new ArrayList<>(owned.size());
+        for (Pet pet : owned) {
+            if(pet.isAlive())
+                pets.add(pet);
+        }
 
-        LinkedList<Pet> collect = streamSupplier.get()
-                .filter(Pet::isAlive)
-                .sorted(Comparator.comparingInt(o -> o.getEntity().getEntity().getEntityId()))
-                .collect(Collectors.toCollection(LinkedList::new));
+        if(pets.size() > 1)
+            pets.sort(Comparator.comparingInt(pet -> pet.getEntity().getEntity().getEntityId()));
 
-        collect.addAll(streamSupplier.get()
-                .filter(pet -> !pet.isAlive())
-                .sorted(Comparator.comparingInt(Object::hashCode))
-                .collect(Collectors.toCollection(LinkedList::new)));
+        for (Pet pet : owned) {
+            if(!pet.isAlive())
+                pets.add(pet);
+        }
+
+        return pets;
+    }
 
-        return collect;
+    public Optional<Pet> getPetByUniqueId(UUID uniqueId){
+        return Optional.ofNullable(cachedPetsById.get(uniqueId));
     }
 
     public void selectPet(Player player, PetType type){
@@ -100,14 +305,13 @@ public abstract class StorageManager {
 
         if(plugin.isSetting(Setting.MULTIPLE_PETS) && plugin.getStorageManager()
                 .getPetsByOwner(player.getUniqueId()).size()
-                >= plugin.getUtility().getPermissionBasedSetting(player, "pet.multiple_pets.limits",
-                "limit", Long.MAX_VALUE)){
+                >= plugin.getPermissionManager().getSnapshot(player).getPetLimit()){
 
             locale.send(player, "commands.select.pet-limit", true);
             return;
         }
 
-        if(plugin.getConfigDefinition().isExcludedWorld(player.getWorld().getName())){
+        if(!plugin.getWorldPolicyManager().isEnabled(player.getWorld())){
             locale.send(player, "generic.world-restricted", false);
             return;
         }
@@ -125,8 +329,7 @@ public abstract class StorageManager {
 
         if(settingCooldown) {
             long expiry = System.currentTimeMillis()
-                    + 1000 * plugin.getUtility().getPermissionBasedSetting(player, "pet.cooldown.select.limits",
-                    "select_cooldown", 0);
+                    + 1000 * plugin.getPermissionManager().getSnapshot(player).getSelectCooldown();
 
             plugin.getCooldownManager().addCooldown(player.getUniqueId(), Cooldown.Type.SELECT, expiry);
         }
@@ -153,9 +356,233 @@ public abstract class StorageManager {
         return pet;
     }
 
-    public abstract void storePet(Pet pet, boolean save);
+    public void storePet(Pet pet, boolean save){
+        try (StorageMetrics.Timer timer = metrics.time("pet.store")) {
+            Pet previous = cachedPetsById.put(pet.getUniqueId(), pet);
+            if(previous != null)
+                uncache(previous);
 
-    public abstract void updatePet(Pet pet, StorageManager.Action action);
+            cachedPets.computeIfAbsent(pet.getOwner(), owner -> new ArrayList<>(2)).add(pet);
+
+            if(save)
+                writeQueue.store(pet);
+
+            timer.success();
+        }
+    }
+
+    public void updatePet(Pet pet, StorageManager.Action action){
+        try (StorageMetrics.Timer timer = metrics.time("pet.update." + action.name().toLowerCase())) {
+            if(action == Action.REMOVE){
+                if(cachedPetsById.remove(pet.getUniqueId(), pet))
+                    uncache(pet);
+
+                if(!ready.isDone())
+                    removedWhileLoading.add(pet.getUniqueId());
+            }
+
+            writeQueue.update(pet, action);
+            timer.success();
+        }
+    }
+
+    private void uncache(Pet pet){
+        List<Pet> owned = cachedPets.get(pet.getOwner());
+        if(owned == null)
+            return;
+
+        owned.remove(pet);
+        if(owned.isEmpty())
+            cachedPets.remove(pet.getOwner());
+    }
+
+    /**
+     * Turns a stored record back into a pet, resolving its type, skills and particle.
+     */
+    protected Optional<Pet> buildPet(PetRecord record){
+        Optional<PetType> type = getTypeByUniqueId(record.getType());
+        if(!type.isPresent()){
+            plugin.getLogger().info("Pet type specified by pet '" + record.getUniqueId() + "' is unavailable.");
+            return Optional.empty();
+        }
+
+        List<Skill> skills = record.getSkills().stream()
+                .map(skill -> Utility.deserializeSkill(skill, plugin))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        IPet.IPetBuilder petBuilder = IPet.builder()
+                .uniqueId(record.getUniqueId())
+                .owner(record.getOwner())
+                .type(type.get())
+                .name(record.getName())
+                .skills(skills)
+                .extra(new HashMap<>(record.getExtra()))
+                .plugin(plugin);
+
+        IParticle particle = null;
+        if(record.hasParticle()){
+            particle = new IParticle(org.bukkit.Particle.valueOf(record.getParticle()), record.getParticleSpeed(), plugin);
+            petBuilder.particle(particle);
+        }
+
+        Pet pet = petBuilder.build();
+        if(particle != null)
+            particle.setPet(pet);
+
+        return Optional.of(pet);
+    }
+
+    /**
+     * Writes a batch of coalesced pet changes to the backend.
+     * Always called from a single thread at a time, usually the storage thread.
+     */
+    protected abstract void writePets(List<PendingWrite> batch);
+
+    private void writePetsTimed(List<PendingWrite> batch){
+        try (StorageMetrics.Timer timer = metrics.time("pet.write", batch.size() + " pet change(s)")) {
+            writePets(batch);
+            timer.success();
+        }
+    }
+
+    /**
+     * Reads the stored pets of a single owner straight from the backend.
+     * Called off the main thread.
+     */
+    public abstract List<PetRecord> loadPetRecordsByOwner(UUID owner);
+
+    private List<PetRecord> loadPetRecordsTimed(UUID owner){
+        try (StorageMetrics.Timer timer = metrics.time("pet.load_owner", owner.toString())) {
+            List<PetRecord> records = loadPetRecordsByOwner(owner);
+            timer.success();
+            return records;
+        }
+    }
+
+    /* Lazy loading */
+
+    /**
+     * Pets are loaded per owner on demand instead of all at once when pet preloading is disabled.
+     */
+    public boolean isLazy(){
+        return !plugin.isPreload(Type.PET);
+    }
+
+    /**
+     * Reads the pets of a logging in player on the login thread, so they are ready once the player joins.
+     */
+    public void prefetchPets(UUID owner){
+        if(!isLazy())
+            return;
+
+        try {
+            writeQueue.flush();
+            prefetched.put(owner, loadPetRecordsTimed(owner));
+        } catch (RuntimeException ex){
+            plugin.getLogger().warning("Unable to prefetch pets of " + owner);
+            ex.printStackTrace();
+        }
+    }
+
+    public void discardPrefetch(UUID owner){
+        prefetched.remove(owner);
+    }
+
+    /**
+     * Makes sure the pets of the given owner are cached, loading them from the backend if needed.
+     * The returned future always completes on the main thread.
+     */
+    public CompletableFuture<List<Pet>> loadPets(UUID owner){
+        if(!ready.isDone())
+            return ready.thenCompose(result -> loadPets(owner));
+
+        cancelEviction(owner);
+
+        if(!isLazy() || loadedOwners.contains(owner)){
+            prefetched.remove(owner);
+            return CompletableFuture.completedFuture(getPetsByOwner(owner));
+        }
+
+        List<PetRecord> records = prefetched.remove(owner);
+        if(records != null)
+            return CompletableFuture.completedFuture(cacheRecords(owner, records));
+
+        return loading.computeIfAbsent(owner, uniqueId -> {
+            CompletableFuture<List<Pet>> future = new CompletableFuture<>();
+
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                try {
+                    writeQueue.flush();
+                    List<PetRecord> loaded = loadPetRecordsTimed(uniqueId);
+
+                    Bukkit.getScheduler().runTask(plugin, () -> {
+                        loading.remove(uniqueId);
+                        future.complete(cacheRecords(uniqueId, loaded));
+                    });
+                } catch (RuntimeException ex){
+                    plugin.getLogger().warning("Unable to load pets of " + uniqueId);
+                    ex.printStackTrace();
+
+                    Bukkit.getScheduler().runTask(plugin, () -> {
+                        loading.remove(uniqueId);
+                        future.completeExceptionally(ex);
+                    });
+                }
+            });
+
+            return future;
+        });
+    }
+
+    private List<Pet> cacheRecords(UUID owner, List<PetRecord> records){
+        if(loadedOwners.add(owner)){
+            records.stream()
+                    .filter(record -> !cachedPetsById.containsKey(record.getUniqueId()))
+                    .map(this::buildPet)
+                    .forEach(pet -> pet.ifPresent(value -> storePet(value, false)));
+        }
+
+        return getPetsByOwner(owner);
+    }
+
+    /**
+     * Drops the owner's pets from the cache once the grace period has passed and pending changes are written.
+     */
+    public void scheduleEviction(UUID owner){
+        if(!isLazy())
+            return;
+
+        cancelEviction(owner);
+
+        long delay = plugin.getLongSetting(Setting.GENERAL_STORAGE_LAZY_EVICTION_DELAY) * 20;
+        evictions.put(owner, Bukkit.getScheduler().runTaskLater(plugin, () -> evict(owner), delay));
+    }
+
+    private void cancelEviction(UUID owner){
+        BukkitTask task = evictions.remove(owner);
+        if(task != null)
+            task.cancel();
+    }
+
+    private void evict(UUID owner){
+        evictions.remove(owner);
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            writeQueue.flush();
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if(Bukkit.getPlayer(owner) != null || evictions.containsKey(owner) || loading.containsKey(owner))
+                    return;
+
+                List<Pet> owned = cachedPets.remove(owner);
+                if(owned != null)
+                    owned.forEach(pet -> cachedPetsById.remove(pet.getUniqueId()));
+
+                loadedOwners.remove(owner);
+            });
+        });
+    }
 
     /* Type storage */
 
@@ -164,15 +591,11 @@ public abstract class StorageManager {
     public abstract void removeType(PetType type);
 
     public Optional<PetType> getTypeByName(String name){
-        return cachedTypes.stream()
-                .filter(petType -> petType.getName().equalsIgnoreCase(name))
-                .findAny();
+        return typeRegistry.getTypeByName(name);
     }
 
     public Optional<PetType> getTypeByUniqueId(UUID uniqueId) {
-        return cachedTypes.stream()
-                .filter(petType -> petType.getUniqueId().equals(uniqueId))
-                .findAny();
+        return typeRegistry.getTypeByUniqueId(uniqueId);
     }
 
     /* Locale */
@@ -184,6 +607,25 @@ public abstract class StorageManager {
         return (String) cachedLocaleData.get(key);
     }
 
+    private void reloadLocale(){
+        if(plugin.getLocale() != null)
+            plugin.getLocale().reload();
+
+        invalidateMenus();
+    }
+
+    private void invalidateMenus(){
+        if(plugin.getMenuManager() != null)
+            plugin.getMenuManager().getRenderCache().invalidate();
+    }
+
+    private void catalogChanged(){
+        invalidateMenus();
+
+        if(plugin.getPermissionManager() != null)
+            plugin.getPermissionManager().invalidateAll();
+    }
+
     @SuppressWarnings("unchecked")
     public List<String> getLocaleListByKey(String key) {
         if(!cachedLocaleData.containsKey(key))
@@ -201,13 +643,285 @@ public abstract class StorageManager {
                 .findAny();
     }
 
+    /* Warm start */
+
+    /**
+     * Identifies the current state of the backend, or null if it can't be told.
+     * A snapshot is only used while the backend still reports the marker it was written with.
+     */
+    protected abstract String getChangeMarker();
+
+    /**
+     * Writes the caches to the snapshot file so the next start can skip reading the backend.
+     * Called on shutdown, once pending writes are flushed.
+     */
+    public void writeSnapshot(){
+        if(!plugin.isSetting(Setting.GENERAL_STORAGE_SNAPSHOT_ENABLED) || !ready.isDone())
+            return;
+
+        long start = System.currentTimeMillis();
+        File file  = getSnapshotFile();
+
+        try {
+            String marker = getChangeMarker();
+            if(marker == null)
+                return;
+
+            Set<Type> preloaded = getPreloadedTypes();
+            CacheSnapshot.builder()
+                    .marker(marker)
+                    .preloaded(preloaded)
+                    .locale(preloaded.contains(Type.LOCALE) ? exportLocale() : Collections.emptyMap())
+                    .types(preloaded.contains(Type.TYPE) ? typeRegistry.getTypes() : Collections.emptyList())
+                    .foodItems(preloaded.contains(Type.MISC) ? cachedFoodItems : Collections.emptyList())
+                    .pets(preloaded.contains(Type.PET) ? cachedPetsById.values().stream()
+                            .map(PetRecord::of)
+                            .collect(Collectors.toList()) : Collections.emptyList())
+                    .build()
+                    .write(file);
+        } catch (IOException | RuntimeException ex){
+            plugin.getLogger().warning("Unable to write cache snapshot " + file.getName());
+            ex.printStackTrace();
+            return;
+        }
+
+        plugin.getLogger().info("Wrote cache snapshot of " + cachedPetsById.size() + " pet(s) ("
+                + (System.currentTimeMillis() - start) + " ms)");
+    }
+
+    /**
+     * Fills the caches from the snapshot if it still matches the backend. The snapshot is consumed either way,
+     * pets are reconciled with the backend in the background afterwards.
+     */
+    private boolean loadSnapshot(int generation, CompletableFuture<Void> loaded){
+        File file = getSnapshotFile();
+        if(!plugin.isSetting(Setting.GENERAL_STORAGE_SNAPSHOT_ENABLED) || !file.exists())
+            return false;
+
+        Optional<CacheSnapshot> read;
+        String marker;
+        try {
+            read   = CacheSnapshot.read(file, this::resolveCategory);
+            marker = getChangeMarker();
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException | RuntimeException ex){
+            plugin.getLogger().warning("Unable to read cache snapshot " + file.getName());
+            ex.printStackTrace();
+            return false;
+        }
+
+        Set<Type> preloaded = getPreloadedTypes();
+        if(!read.isPresent() || marker == null || !marker.equals(read.get().getMarker())
+                || !preloaded.equals(read.get().getPreloaded())){
+            plugin.getLogger().info("Cache snapshot is outdated, loading from storage");
+            return false;
+        }
+
+        CacheSnapshot snapshot = read.get();
+        cachedLocaleData.putAll(snapshot.getLocale());
+        reloadLocale();
+        typeRegistry.addAll(snapshot.getTypes());
+        cachedFoodItems.addAll(snapshot.getFoodItems());
+
+        List<Pet> staged = new ArrayList<>(snapshot.getPets().size());
+        snapshot.getPets().forEach(record -> buildPet(record).ifPresent(staged::add));
+
+        plugin.getLogger().info("Loaded " + snapshot.getTypes().size() + " type(s) and "
+                + staged.size() + " pet(s) from cache snapshot");
+
+        finishLoad(generation, loaded, staged);
+
+        if(preloaded.contains(Type.PET))
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> reconcile(generation, snapshot.getPets()));
+
+        return true;
+    }
+
+    /**
+     * Compares pets restored from a snapshot with the backend and applies what changed in between,
+     * leaving pets alone that were changed on this server since.
+     */
+    private void reconcile(int generation, List<PetRecord> restored){
+        Map<UUID, PetRecord> restoredById = new HashMap<>();
+        restored.forEach(record -> restoredById.put(record.getUniqueId(), record));
+
+        Set<UUID> missing = new HashSet<>(restoredById.keySet());
+        List<PetRecord> changed = new ArrayList<>();
+
+        try {
+            exportPets(record -> {
+                missing.remove(record.getUniqueId());
+                if(!record.equals(restoredById.get(record.getUniqueId())))
+                    changed.add(record);
+            });
+        } catch (RuntimeException ex){
+            plugin.getLogger().warning("Unable to reconcile cache snapshot with storage");
+            ex.printStackTrace();
+            return;
+        }
+
+        if(changed.isEmpty() && missing.isEmpty())
+            return;
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if(generation != loadGeneration)
+                return;
+
+            int applied = 0;
+            for (PetRecord record : changed) {
+                Pet current = cachedPetsById.get(record.getUniqueId());
+                PetRecord known = restoredById.get(record.getUniqueId());
+
+                if(current == null ? known == null : known != null && known.equals(PetRecord.of(current))){
+                    replaceCachedPet(current, record);
+                    applied++;
+                }
+            }
+
+            for (UUID uniqueId : missing) {
+                Pet current = cachedPetsById.get(uniqueId);
+                if(current != null && restoredById.get(uniqueId).equals(PetRecord.of(current))){
+                    replaceCachedPet(current, null);
+                    applied++;
+                }
+            }
+
+            plugin.getLogger().info("Reconciled " + applied + " pet(s) changed in storage since the cache snapshot");
+        });
+    }
+
+    private void replaceCachedPet(Pet current, PetRecord record){
+        boolean spawned = current != null && plugin.getPetManager().isPetSpawned(current);
+
+        if(current != null){
+            if(spawned)
+                plugin.getPetManager().despawnPet(current);
+
+            cachedPetsById.remove(current.getUniqueId());
+            uncache(current);
+        }
+
+        if(record == null)
+            return;
+
+        buildPet(record).ifPresent(pet -> {
+            storePet(pet, false);
+
+            Player owner = Bukkit.getPlayer(pet.getOwner());
+            if(spawned && owner != null)
+                plugin.getPetManager().spawnPet(pet, owner.getLocation(), owner, false);
+        });
+    }
+
+    private Set<Type> getPreloadedTypes(){
+        Set<Type> preloaded = EnumSet.noneOf(Type.class);
+        Arrays.stream(Type.values())
+                .filter(plugin::isPreload)
+                .forEach(preloaded::add);
+
+        return preloaded;
+    }
+
+    private PetCategory resolveCategory(String id){
+        PetCategory defaultCategory = plugin.getSettingManager().getCategoryById("default")
+                .orElse(null);
+
+        return id == null ? defaultCategory : plugin.getSettingManager().getCategoryById(id).orElse(defaultCategory);
+    }
+
+    private File getSnapshotFile(){
+        return new File(plugin.getDataFolder(), plugin.getStringSetting(Setting.GENERAL_STORAGE_SNAPSHOT_FILE));
+    }
+
+    /* Migration */
+
+    /**
+     * Prepares a storage that is not the active one to take part in a migration.
+     * Locale, types and food items are loaded, pets are read on demand.
+     */
+    public void open(){
+        setup();
+        cachedFoodItems.clear();
+        typeRegistry.clear();
+        cachedLocaleData.clear();
+
+        for (Type type : new Type[]{Type.LOCALE, Type.TYPE, Type.MISC}) {
+            PreloadResult result = new PreloadResult();
+            preload(type, result);
+            install(type, result);
+        }
+    }
+
+    /**
+     * Releases a storage opened for a migration.
+     */
+    public void close(){
+        shutdown();
+    }
+
+    public List<PetType> exportTypes(){
+        return new ArrayList<>(typeRegistry.getTypes());
+    }
+
+    public List<Food> exportFoodItems(){
+        return new ArrayList<>(cachedFoodItems);
+    }
+
+    /**
+     * Locale messages and message lists, without the sections holding them.
+     */
+    public Map<String, Object> exportLocale(){
+        Map<String, Object> locale = new LinkedHashMap<>();
+        cachedLocaleData.forEach((key, value) -> {
+            if(value instanceof String || value instanceof List)
+                locale.put(key, value);
+        });
+
+        return locale;
+    }
+
+    /**
+     * Streams every stored pet straight from the backend in a stable order, bypassing the cache.
+     */
+    public abstract void exportPets(Consumer<PetRecord> consumer);
+
+    public abstract long countPets();
+
+    /**
+     * Writes whole pets straight to the backend, replacing stored pets with the same id.
+     */
+    public void importPets(List<PetRecord> records){
+        writePets(records.stream()
+                .map(PendingWrite::created)
+                .collect(Collectors.toList()));
+    }
+
+    public abstract void importTypes(List<PetType> types);
+
+    public abstract void importFoodItems(List<Food> foodItems);
+
+    public abstract void importLocale(Map<String, Object> locale);
+
     /* Model */
 
+    /**
+     * Preloaded data, with the data that has to be preloaded first and whether enabling waits for it.
+     */
     public enum Type {
-        LOCALE,
-        TYPE,
-        PET,
-        MISC
+        LOCALE(true),
+        TYPE(true),
+        PET(false, TYPE),
+        MISC(true);
+
+        @Getter
+        private final boolean awaited;
+        @Getter
+        private final Type[] dependencies;
+
+        Type(boolean awaited, Type... dependencies){
+            this.awaited      = awaited;
+            this.dependencies = dependencies;
+        }
     }
 
     public enum Action {
@@ -0,0 +1,143 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage;
+
+import net.llamasoftware.spigot.floatingpets.api.model.PetType;
+
+import java.util.*;
+
+/**
+ * Search index over the names and category names of a fixed list of pet types.
+ *
+ * Queries of at least three characters are answered from trigram postings, shorter ones
+ * from the postings of their one or two characters, so no query scans the whole catalog.
+ * Results are ranked: exact name, name prefix, name substring, then category matches.
+ */
+public class TypeSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private final PetType[] types;
+    private final String[] names;
+    private final String[] categories;
+    private final Map<String, int[]> grams;
+
+    public TypeSearchIndex(List<PetType> types){
+        int size = types.size();
+        this.types      = types.toArray(new PetType[0]);
+        this.names      = new String[size];
+        this.categories = new String[size];
+
+        Map<String, List<Integer>> gramPostings = new HashMap<>();
+
+        for (int i = 0; i < size; i++) {
+            PetType type = this.types[i];
+            names[i]      = type.getName().toLowerCase(Locale.ROOT);
+            categories[i] = type.getCategory() == null ? "" : type.getCategory().getName().toLowerCase(Locale.ROOT);
+
+            Set<String> typeGrams = new HashSet<>();
+            addGrams(typeGrams, names[i]);
+            addGrams(typeGrams, categories[i]);
+
+            for (String gram : typeGrams) {
+                gramPostings.computeIfAbsent(gram, key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        this.grams = toArrays(gramPostings);
+    }
+
+    /**
+     * Types whose name or category name contains the query, best matches first.
+     */
+    public List<PetType> search(String query){
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        if(normalized.isEmpty())
+            return Collections.emptyList();
+
+        int[] candidates = getGramCandidates(normalized);
+
+        List<int[]> ranked = new ArrayList<>();
+        for (int candidate : candidates) {
+            int rank = rank(candidate, normalized);
+            if(rank >= 0)
+                ranked.add(new int[]{rank, candidate});
+        }
+
+        ranked.sort((first, second) -> {
+            if(first[0] != second[0])
+                return Integer.compare(first[0], second[0]);
+
+            int length = Integer.compare(names[first[1]].length(), names[second[1]].length());
+            return length != 0 ? length : names[first[1]].compareTo(names[second[1]]);
+        });
+
+        List<PetType> results = new ArrayList<>(ranked.size());
+        for (int[] entry : ranked) {
+            results.add(types[entry[1]]);
+        }
+
+        return results;
+    }
+
+    private int rank(int index, String query){
+        String name = names[index];
+        if(name.equals(query))
+            return 0;
+        if(name.startsWith(query))
+            return 1;
+        if(name.contains(query))
+            return 2;
+        if(categories[index].contains(query))
+            return 3;
+
+        return -1;
+    }
+
+    /**
+     * The shortest posting list of all trigrams of the query, every match is in it.
+     * A shorter query is a gram of its own.
+     */
+    private int[] getGramCandidates(String query){
+        if(query.length() < GRAM){
+            int[] postings = grams.get(query);
+            return postings == null ? new int[0] : postings;
+        }
+
+        int[] shortest = null;
+        for (int i = 0; i + GRAM <= query.length(); i++) {
+            int[] postings = grams.get(query.substring(i, i + GRAM));
+            if(postings == null)
+                return new int[0];
+
+            if(shortest == null || postings.length < shortest.length)
+                shortest = postings;
+        }
+
+        return shortest;
+    }
+
+    /**
+     * Every substring of one up to {@link #GRAM} characters.
+     */
+    private static void addGrams(Set<String> target, String text){
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                target.add(text.substring(i, i + length));
+            }
+        }
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> postings){
+        Map<String, int[]> arrays = new HashMap<>(postings.size() * 2);
+        postings.forEach((key, list) -> {
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+
+            arrays.put(key, array);
+        });
+
+        return arrays;
+    }
+
+}
@@ -0,0 +1,189 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage.impl;
+
+import net.llamasoftware.spigot.floatingpets.Constants;
+import net.llamasoftware.spigot.floatingpets.FloatingPets;
+import net.llamasoftware.spigot.floatingpets.api.model.Pet;
+import net.llamasoftware.spigot.floatingpets.api.model.Setting;
+import net.llamasoftware.spigot.floatingpets.manager.sql.MySQLManager;
+import net.llamasoftware.spigot.floatingpets.manager.storage.impl.binary.JournalConverter;
+import net.llamasoftware.spigot.floatingpets.manager.storage.impl.binary.PetJournal;
+import net.llamasoftware.spigot.floatingpets.manager.storage.queue.PendingWrite;
+import net.llamasoftware.spigot.floatingpets.model.pet.PetRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Keeps pets in an append-only binary journal. Types, food items and locale
+ * are still read from the flatfile storage files.
+ */
+public class BinaryStorageManager extends FlatfileStorageManager {
+
+    private static final String CONVERT_NONE = "none";
+
+    private final FloatingPets plugin;
+    private PetJournal journal;
+
+    public BinaryStorageManager(FloatingPets plugin){
+        super(plugin);
+        this.plugin = plugin;
+    }
+
+    @Override
+    protected void setupPetStorage() {
+        if(journal != null)
+            return;
+
+        File journalFile = new File(plugin.getDataFolder(), plugin.getStringSetting(Setting.GENERAL_STORAGE_BINARY_FILE));
+        String baseName  = journalFile.getName().contains(".")
+                ? journalFile.getName().substring(0, journalFile.getName().lastIndexOf('.'))
+                : journalFile.getName();
+
+        journal = new PetJournal(journalFile, new File(journalFile.getParentFile(), baseName + ".index"), plugin.getLogger());
+
+        try {
+            journal.open();
+        } catch (IOException ex){
+            throw new UncheckedIOException("Unable to open pet journal " + journalFile.getName(), ex);
+        }
+
+        String source = plugin.getStringSetting(Setting.GENERAL_STORAGE_BINARY_CONVERT);
+        if(source == null || source.equalsIgnoreCase(CONVERT_NONE))
+            return;
+
+        // A journal without pets may just have had all of them removed, converting again would bring them back
+        if(!journal.isCreated()){
+            plugin.getLogger().info("  Pet journal already exists, 'convert_from' is ignored and can be set to '" + CONVERT_NONE + "'");
+            return;
+        }
+
+        convert(source);
+    }
+
+    /**
+     * Imports pets of the given backend into the journal that was just created. If reading them fails the
+     * journal is deleted again, so the conversion is retried on the next start.
+     */
+    private void convert(String source){
+        JournalConverter converter = new JournalConverter(plugin.getLogger());
+        List<PetRecord> records = Collections.emptyList();
+
+        if(source.equalsIgnoreCase(Constants.STORAGE_TYPE_FLATFILE)){
+            records = converter.readFlatfile(petDirectory,
+                    new File(plugin.getDataFolder(), plugin.getStringSetting(Setting.GENERAL_STORAGE_FLATFILE_PETS)));
+        } else if(source.equalsIgnoreCase(Constants.STORAGE_TYPE_MYSQL)){
+            MySQLManager mySqlManager = plugin.createMySQLManager();
+            try {
+                records = converter.readMySQL(mySqlManager,
+                        plugin.getStringSetting(Setting.GENERAL_STORAGE_MYSQL_PREFIX),
+                        plugin.getIntSetting(Setting.GENERAL_STORAGE_MYSQL_MIGRATION_CHUNK_SIZE));
+            } catch (SQLException | RuntimeException ex){
+                discardJournal();
+                throw new IllegalStateException("Unable to convert pets from MySQL", ex);
+            } finally {
+                mySqlManager.close();
+            }
+        } else {
+            discardJournal();
+            throw new IllegalStateException("Unknown storage type '" + source + "' to convert pets from");
+        }
+
+        try {
+            journal.appendRecords(records);
+            journal.writeIndex();
+        } catch (IOException ex){
+            throw new UncheckedIOException("Unable to write converted pets to " + journal.getFile().getName(), ex);
+        }
+
+        plugin.getLogger().info("  Converted " + records.size() + " pet(s) from " + source + " to " + journal.getFile().getName()
+                + ", 'convert_from' can now be set to '" + CONVERT_NONE + "'");
+    }
+
+    private void discardJournal(){
+        try {
+            journal.discard();
+        } catch (IOException ex){
+            plugin.getLogger().warning("Unable to delete " + journal.getFile().getName() + ", delete it before converting again");
+            ex.printStackTrace();
+        }
+
+        journal = null;
+    }
+
+    @Override
+    protected void preloadPets(List<Pet> pets) {
+        List<PetRecord> records;
+        try {
+            records = journal.readAll();
+        } catch (IOException ex){
+            plugin.getLogger().warning("Unable to read pets from " + journal.getFile().getName());
+            ex.printStackTrace();
+            return;
+        }
+
+        records.forEach(record -> buildPet(record).ifPresent(pets::add));
+        plugin.getLogger().info("  Successfully loaded " + records.size() + " pet(s)");
+    }
+
+    @Override
+    public List<PetRecord> loadPetRecordsByOwner(UUID owner) {
+        try {
+            return journal.readByOwner(owner);
+        } catch (IOException ex){
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    protected void writePets(List<PendingWrite> batch) {
+        try {
+            journal.append(batch);
+
+            if(journal.shouldCompact())
+                journal.compact();
+        } catch (IOException ex){
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    protected void describePetStorage(StringBuilder marker) {
+        describeFile(marker, journal.getFile());
+    }
+
+    @Override
+    public void exportPets(Consumer<PetRecord> consumer) {
+        try {
+            journal.forEach(consumer);
+        } catch (IOException ex){
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public long countPets() {
+        return journal.size();
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+
+        if(journal == null)
+            return;
+
+        try {
+            journal.close();
+        } catch (IOException ex){
+            plugin.getLogger().warning("Unable to close " + journal.getFile().getName());
+            ex.printStackTrace();
+        }
+    }
+
+}
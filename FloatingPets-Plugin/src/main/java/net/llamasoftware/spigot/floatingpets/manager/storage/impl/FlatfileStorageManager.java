@@ -3,25 +3,36 @@ package net.llamasoftware.spigot.floatingpets.manager.storage.impl;
 import net.llamasoftware.spigot.floatingpets.FloatingPets;
 import net.llamasoftware.spigot.floatingpets.api.model.*;
 import net.llamasoftware.spigot.floatingpets.manager.config.YAMLManager;
+import net.llamasoftware.spigot.floatingpets.manager.storage.PreloadResult;
 import net.llamasoftware.spigot.floatingpets.manager.storage.StorageManager;
+import net.llamasoftware.spigot.floatingpets.manager.storage.queue.PartialWriteException;
+import net.llamasoftware.spigot.floatingpets.manager.storage.queue.PendingWrite;
 import net.llamasoftware.spigot.floatingpets.model.config.YAMLFile;
 import net.llamasoftware.spigot.floatingpets.model.misc.Food;
-import net.llamasoftware.spigot.floatingpets.model.pet.IParticle;
-import net.llamasoftware.spigot.floatingpets.model.pet.IPet;
-import net.llamasoftware.spigot.floatingpets.util.Utility;
+import net.llamasoftware.spigot.floatingpets.model.pet.PetRecord;
 import org.bukkit.Material;
-import org.bukkit.Particle;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class FlatfileStorageManager extends StorageManager {
 
+    private static final String SHARD_EXTENSION = ".yml";
+    private static final String CORRUPT_SUFFIX  = ".corrupt";
+
     private final FloatingPets plugin;
-    private YAMLFile petDataFile,
-                     petTypeFile,
+    private final Object shardLock = new Object();
+    protected File petDirectory;
+    private YAMLFile petTypeFile,
                      miscFile,
                      localeFile;
 
@@ -34,31 +45,133 @@ public class FlatfileStorageManager extends StorageManager {
     @Override
     public void setup() {
         YAMLManager yamlManager = plugin.getYamlManager();
-        this.petDataFile = yamlManager.loadIfNotExists(plugin.getStringSetting(Setting.GENERAL_STORAGE_FLATFILE_PETS));
+        this.petDirectory = new File(plugin.getDataFolder(), plugin.getStringSetting(Setting.GENERAL_STORAGE_FLATFILE_PET_DIRECTORY));
         this.petTypeFile = yamlManager.loadIfNotExists(plugin.getStringSetting(Setting.GENERAL_STORAGE_FLATFILE_TYPE));
         this.miscFile    = yamlManager.loadIfNotExists(plugin.getStringSetting(Setting.GENERAL_STORAGE_FLATFILE_MISC));
         this.localeFile  = plugin.getDefaultLocaleFile();
+
+        setupPetStorage();
     }
 
-    @Override
-    public void preload(Type storageType) {
+    protected void setupPetStorage(){
+        if(!petDirectory.exists())
+            petDirectory.mkdirs();
 
-        plugin.getLogger().info("Preloading " + storageType.name().toLowerCase());
+        migrateLegacyPetFile();
+    }
 
-        switch (storageType){
-            case PET:{
-                if(!petDataFile.isLoaded())
-                    petDataFile.load();
+    /**
+     * Splits the single pet file used by older versions into one file per owner.
+     * The old file is kept with a '.migrated' suffix, or left in place if it can't be parsed.
+     */
+    private void migrateLegacyPetFile(){
+        File legacyFile = new File(plugin.getDataFolder(), plugin.getStringSetting(Setting.GENERAL_STORAGE_FLATFILE_PETS));
+        if(!legacyFile.exists())
+            return;
+
+        YamlConfiguration legacy = new YamlConfiguration();
+        try {
+            legacy.load(legacyFile);
+        } catch (IOException | InvalidConfigurationException ex){
+            plugin.getLogger().warning("Unable to parse " + legacyFile.getName() + ", it is kept and not migrated to per-owner pet files");
+            ex.printStackTrace();
+            return;
+        }
 
-                YamlConfiguration dataStorage = petDataFile.getConfiguration();
-                ConfigurationSection petStorageSection = dataStorage.getConfigurationSection("pets");
+        ConfigurationSection section = legacy.getConfigurationSection("pets");
+        Map<UUID, YamlConfiguration> shards = new HashMap<>();
+        int migrated = 0;
+
+        try {
+            if(section != null){
+                for (String uniqueId : section.getKeys(false)) {
+                    ConfigurationSection petSection = section.getConfigurationSection(uniqueId);
+                    if(petSection == null || petSection.getString("owner") == null)
+                        continue;
+
+                    UUID owner;
+                    try {
+                        owner = UUID.fromString(Objects.requireNonNull(petSection.getString("owner")));
+                    } catch (IllegalArgumentException ex){
+                        plugin.getLogger().warning("  Skipping malformed pet '" + uniqueId + "' in " + legacyFile.getName());
+                        continue;
+                    }
 
-                if(petStorageSection == null) {
-                    plugin.getLogger().warning("Configuration section 'pets' does not exist in " + petDataFile.getFile().getName());
-                    return;
+                    YamlConfiguration shard = shards.get(owner);
+                    if(shard == null){
+                        shard = loadShard(owner);
+                        shards.put(owner, shard);
+                    }
+
+                    copySection(petSection, shard.createSection("pets." + uniqueId));
+                    migrated++;
                 }
+            }
+
+            for (Map.Entry<UUID, YamlConfiguration> entry : shards.entrySet()) {
+                YAMLFile.saveAtomically(entry.getValue(), getShardFile(entry.getKey()));
+            }
+
+            Files.move(legacyFile.toPath(), new File(legacyFile.getParentFile(), legacyFile.getName() + ".migrated").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex){
+            plugin.getLogger().warning("Unable to migrate " + legacyFile.getName() + " to per-owner pet files");
+            ex.printStackTrace();
+            return;
+        }
+
+        plugin.getLogger().info("  Migrated " + migrated + " pet(s) of "
+                + shards.size() + " owner(s) from " + legacyFile.getName() + " to " + petDirectory.getName() + File.separator);
+    }
+
+    private void copySection(ConfigurationSection from, ConfigurationSection to){
+        for (String key : from.getKeys(false)) {
+            ConfigurationSection child = from.getConfigurationSection(key);
+            if(child != null){
+                copySection(child, to.createSection(key));
+            } else {
+                to.set(key, from.get(key));
+            }
+        }
+    }
+
+    private File getShardFile(UUID owner){
+        return new File(petDirectory, owner.toString() + SHARD_EXTENSION);
+    }
+
+    private YamlConfiguration loadShard(UUID owner) throws IOException {
+        return readShard(getShardFile(owner));
+    }
+
+    /**
+     * Parses a pet file. A file that can't be parsed is never read as empty, which would overwrite it with
+     * only part of its pets; it is left in place, copied aside with a '.corrupt' suffix and reported.
+     */
+    private YamlConfiguration readShard(File file) throws IOException {
+        YamlConfiguration shard = new YamlConfiguration();
+        if(!file.exists())
+            return shard;
+
+        try {
+            shard.load(file);
+        } catch (InvalidConfigurationException ex){
+            Files.copy(file.toPath(), new File(file.getParentFile(), file.getName() + CORRUPT_SUFFIX).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            throw new IOException("Unable to parse pet file " + file.getName() + ", a copy was kept as "
+                    + file.getName() + CORRUPT_SUFFIX, ex);
+        }
+
+        return shard;
+    }
 
-                loadStoredPets(petStorageSection);
+    @Override
+    public void preload(Type storageType, PreloadResult result) {
+
+        plugin.getLogger().info("Preloading " + storageType.name().toLowerCase());
+
+        switch (storageType){
+            case PET:{
+                preloadPets(result.getPets());
                 break;
             }
 
@@ -75,7 +188,7 @@ public class FlatfileStorageManager extends StorageManager {
                     return;
                 }
 
-                loadStoredTypes(typeSection);
+                result.getTypes().addAll(loadStoredTypes(typeSection));
                 break;
             }
 
@@ -89,7 +202,7 @@ public class FlatfileStorageManager extends StorageManager {
                     return;
                 }
 
-                loadStoredFoodItems(miscConfig.getStringList("food_items"));
+                result.getFoodItems().addAll(loadStoredFoodItems(miscConfig.getStringList("food_items")));
                 break;
             }
 
@@ -99,7 +212,7 @@ public class FlatfileStorageManager extends StorageManager {
                     return;
 
                 section.getKeys(true)
-                        .forEach(key -> cachedLocaleData.put(key, section.get(key)));
+                        .forEach(key -> result.getLocale().put(key, section.get(key)));
 
                 break;
             }
@@ -107,69 +220,104 @@ public class FlatfileStorageManager extends StorageManager {
         }
     }
 
-    private void loadStoredPets(ConfigurationSection section){
-        for(String uuidString : section.getKeys(false)){
-            ConfigurationSection petSection = section.getConfigurationSection(uuidString);
-            if(petSection == null)
-                continue;
-
-            UUID uniqueId = UUID.fromString(uuidString);
-            UUID owner = UUID.fromString(Objects.requireNonNull(petSection.getString("owner")));
-            Optional<PetType> type = getTypeByUniqueId(UUID.fromString(Objects.requireNonNull(petSection.getString("type"))));
+    protected void preloadPets(List<Pet> pets){
+        File[] shardFiles = petDirectory.listFiles((directory, name) -> name.endsWith(SHARD_EXTENSION));
+        if(shardFiles == null)
+            return;
+
+        synchronized (shardLock) {
+            for (File shardFile : shardFiles) {
+                ConfigurationSection petStorageSection;
+                try {
+                    petStorageSection = readShard(shardFile).getConfigurationSection("pets");
+                } catch (IOException ex){
+                    plugin.getLogger().warning(ex.getMessage());
+                    continue;
+                }
 
-            if(!type.isPresent()){
-                plugin.getLogger().info("Pet type specified by pet '" + uniqueId.toString() + "' is unavailable.");
-                return;
+                if (petStorageSection != null)
+                    loadStoredPets(petStorageSection, shardFile, pets);
             }
+        }
 
-            String name = petSection.getString("name");
+        plugin.getLogger().info("  Successfully loaded pets of " + shardFiles.length + " owner(s)");
+    }
 
-            List<Skill> skills = petSection.getStringList("skills")
-                    .stream()
-                    .map(s -> Utility.deserializeSkill(s, plugin))
-                    .collect(Collectors.toList());
+    @Override
+    public List<PetRecord> loadPetRecordsByOwner(UUID owner) {
+        YamlConfiguration shard;
+        synchronized (shardLock) {
+            try {
+                shard = loadShard(owner);
+            } catch (IOException ex){
+                throw new IllegalStateException("Unable to load pets of " + owner + " from pet files", ex);
+            }
+        }
 
-            IPet.IPetBuilder petBuilder = IPet.builder()
-                                                .uniqueId(uniqueId)
-                                                .owner(owner)
-                                                .type(type.get())
-                                                .skills(skills)
-                                                .plugin(plugin)
-                                                .name(name);
+        List<PetRecord> records = new ArrayList<>();
+        ConfigurationSection section = shard.getConfigurationSection("pets");
+        if(section == null)
+            return records;
 
-            net.llamasoftware.spigot.floatingpets.api.model.Particle petParticle = null;
-            if(petSection.contains("particle")){
-                Particle particle = Particle.valueOf(petSection.getString("particle.type"));
-                int speed = petSection.getInt("particle.speed");
+        for (String uuidString : section.getKeys(false)) {
+            ConfigurationSection petSection = section.getConfigurationSection(uuidString);
+            if(petSection == null)
+                continue;
 
-                petParticle = new IParticle(particle, speed, plugin);
-                petBuilder.particle(petParticle);
+            try {
+                records.add(readRecord(UUID.fromString(uuidString), petSection));
+            } catch (IllegalArgumentException | NullPointerException ex){
+                plugin.getLogger().warning("Skipping malformed pet '" + uuidString + "' of " + owner);
             }
+        }
 
-            Map<String, Object> extraMap = new HashMap<>();
-
-            if(petSection.contains("extra")){
-                ConfigurationSection extra = petSection.getConfigurationSection("extra");
-                if(extra == null)
-                    return;
+        return records;
+    }
 
-                for (String key : extra.getKeys(false)) {
-                    extraMap.put(key, petSection.get("extra." + key));
-                }
+    private void loadStoredPets(ConfigurationSection section, File shardFile, List<Pet> pets){
+        for(String uuidString : section.getKeys(false)){
+            ConfigurationSection petSection = section.getConfigurationSection(uuidString);
+            if(petSection == null)
+                continue;
 
-                petBuilder.extra(extraMap);
+            PetRecord record;
+            try {
+                record = readRecord(UUID.fromString(uuidString), petSection);
+            } catch (IllegalArgumentException | NullPointerException ex){
+                plugin.getLogger().warning("Skipping malformed pet '" + uuidString + "' in " + shardFile.getName());
+                continue;
             }
 
-            Pet pet = petBuilder.build();
-            storePet(pet, false);
+            buildPet(record).ifPresent(pets::add);
+        }
+    }
 
-            if(petParticle != null)
-                petParticle.setPet(pet);
+    public static PetRecord readRecord(UUID uniqueId, ConfigurationSection petSection){
+        PetRecord.PetRecordBuilder builder = PetRecord.builder()
+                .uniqueId(uniqueId)
+                .owner(UUID.fromString(Objects.requireNonNull(petSection.getString("owner"))))
+                .type(UUID.fromString(Objects.requireNonNull(petSection.getString("type"))))
+                .name(petSection.getString("name"))
+                .skills(petSection.getStringList("skills"));
+
+        if(petSection.contains("particle")){
+            builder.particle(petSection.getString("particle.type"))
+                    .particleSpeed(petSection.getInt("particle.speed"));
+        }
 
+        Map<String, Object> extraMap = new HashMap<>();
+        ConfigurationSection extra = petSection.getConfigurationSection("extra");
+        if(extra != null){
+            for (String key : extra.getKeys(false)) {
+                extraMap.put(key, extra.get(key));
+            }
         }
+
+        return builder.extra(extraMap).build();
     }
 
-    private void loadStoredTypes(ConfigurationSection section){
+    private List<PetType> loadStoredTypes(ConfigurationSection section){
+        List<PetType> types = new ArrayList<>();
         for(String uniqueId : section.getKeys(false)){
             String name = section.getString(uniqueId + ".name");
             String texture = section.getString(uniqueId + ".texture");
@@ -194,110 +342,156 @@ public class FlatfileStorageManager extends StorageManager {
                 typeBuilder.category(defaultCategory);
             }
             
-            cachedTypes.add(typeBuilder.build());
+            types.add(typeBuilder.build());
         }
 
-        plugin.getLogger().info("  Successfully loaded " + cachedTypes.size() + " pet type(s)");
+        plugin.getLogger().info("  Successfully loaded " + types.size() + " pet type(s)");
+        return types;
     }
 
-    private void loadStoredFoodItems(List<String> serializedFoodItems){
+    private List<Food> loadStoredFoodItems(List<String> serializedFoodItems){
+        List<Food> foodItems = new ArrayList<>();
         for(String serializedFoodItem : serializedFoodItems){
             String[] data = serializedFoodItem.split(":");
             Material material = Material.valueOf(data[0]);
             int amount = Integer.parseInt(data[1]);
             double value = Double.parseDouble(data[2]);
 
-            cachedFoodItems.add(new Food(material, amount, value));
+            foodItems.add(new Food(material, amount, value));
         }
 
-        plugin.getLogger().info("  Successfully loaded " + cachedFoodItems.size() + " food item(s)");
+        plugin.getLogger().info("  Successfully loaded " + foodItems.size() + " food item(s)");
+        return foodItems;
     }
 
     @Override
-    public void storePet(Pet pet, boolean save) {
-
-        cachedPets.add(pet);
-
-        if(save){
-            if(petDataFile.isLoaded())
-                petDataFile.load();
-
-            YamlConfiguration dataStorage = petDataFile.getConfiguration();
-            ConfigurationSection petStorageSection = dataStorage.createSection("pets." + pet.getUniqueId());
-            petStorageSection.set("owner", pet.getOwner().toString());
-            petStorageSection.set("type", pet.getType().getUniqueId().toString());
-            petStorageSection.set("name", pet.getName());
-            petStorageSection.set("skills", pet.getSkills().stream()
-                    .map(Utility::serializeSkill).collect(Collectors.toList()));
-
-            if(pet.getExtra() != null) {
-                pet.getExtra().forEach((key, value) -> petStorageSection.set("extra." + key, value));
-            }
-
-            if(pet.hasParticle()){
-                petStorageSection.set("particle.type", pet.getParticle().getParticle().name());
-                petStorageSection.set("particle.speed", pet.getParticle().getSpeed());
+    protected void writePets(List<PendingWrite> batch) {
+        Map<UUID, List<PendingWrite>> byOwner = batch.stream()
+                .collect(Collectors.groupingBy(PendingWrite::getOwner, LinkedHashMap::new, Collectors.toList()));
+
+        // A shard that can't be written doesn't keep the other owners from being saved
+        List<PendingWrite> failed = new ArrayList<>();
+        IOException cause = null;
+
+        synchronized (shardLock) {
+            for (Map.Entry<UUID, List<PendingWrite>> entry : byOwner.entrySet()) {
+                File shardFile = getShardFile(entry.getKey());
+
+                try {
+                    YamlConfiguration shard = loadShard(entry.getKey());
+                    entry.getValue().forEach(write -> applyWrite(shard, write));
+
+                    ConfigurationSection pets = shard.getConfigurationSection("pets");
+                    if (pets == null || pets.getKeys(false).isEmpty()) {
+                        Files.deleteIfExists(shardFile.toPath());
+                    } else {
+                        YAMLFile.saveAtomically(shard, shardFile);
+                    }
+                } catch (IOException ex) {
+                    plugin.getLogger().warning("Unable to write pet file " + shardFile.getName() + ": " + ex.getMessage());
+                    failed.addAll(entry.getValue());
+                    cause = ex;
+                }
             }
-
-
-            petDataFile.save();
         }
 
+        if(!failed.isEmpty())
+            throw new PartialWriteException("Unable to write " + failed.size() + " pet change(s) to pet files", failed, cause);
     }
 
-    @Override
-    public void updatePet(Pet pet, StorageManager.Action action) {
-        switch (action){
-            case REMOVE:{
-                cachedPets.remove(pet);
+    private void applyWrite(YamlConfiguration dataStorage, PendingWrite write){
+        String path = "pets." + write.getUniqueId().toString();
 
-                petDataFile.getConfiguration().set("pets." + pet.getUniqueId().toString(), null);
-                petDataFile.save();
-                break;
-            }
+        if(write.isRemoved()){
+            dataStorage.set(path, null);
+            return;
+        }
 
-            case RENAME:{
-                updateValue(pet, "name", pet.getName());
-                break;
-            }
+        PetRecord record = write.getRecord();
+
+        if(write.isCreated()){
+            ConfigurationSection petStorageSection = dataStorage.createSection(path);
+            petStorageSection.set("owner", record.getOwner().toString());
+            petStorageSection.set("type", record.getType().toString());
+            petStorageSection.set("name", record.getName());
+            petStorageSection.set("skills", record.getSkills());
+            record.getExtra().forEach((key, value) -> petStorageSection.set("extra." + key, value));
+            writeParticle(petStorageSection, record);
+            return;
+        }
 
-            case SKILL:{
-                updateValue(pet, "skills", pet.getSkills().stream()
-                        .map(Utility::serializeSkill).collect(Collectors.toList()));
-                break;
+        ConfigurationSection petStorageSection = dataStorage.getConfigurationSection(path);
+        if(petStorageSection == null)
+            return;
+
+        for (Action action : write.getDirty()) {
+            switch (action){
+                case RENAME:
+                    petStorageSection.set("name", record.getName());
+                    break;
+                case SKILL:
+                    petStorageSection.set("skills", record.getSkills());
+                    break;
+                case EXTRA:
+                    record.getExtra().forEach((key, value) -> {
+                        if(key != null && value != null) {
+                            petStorageSection.set("extra." + key, value);
+                        }
+                    });
+                    break;
+                case PARTICLE:
+                    writeParticle(petStorageSection, record);
+                    break;
+                default:
+                    break;
             }
+        }
+    }
 
-            case EXTRA:{
-                if(pet.getExtra() == null)
-                    return;
-                
-                pet.getExtra().forEach((key, value) -> {
-                    if(key != null && value != null) {
-                        updateValue(pet, "extra." + key, value);
-                    }
-                });
+    private void writeParticle(ConfigurationSection section, PetRecord record){
+        if(!record.hasParticle()){
+            section.set("particle", null);
+            return;
+        }
 
-                break;
-            }
+        section.set("particle.type", record.getParticle());
+        section.set("particle.speed", record.getParticleSpeed());
+    }
 
-            case PARTICLE:{
-                if(!pet.hasParticle()){
-                    updateValue(pet, "particle", null);
-                    return;
-                }
+    /**
+     * Hash over the size and modification time of every storage file.
+     */
+    @Override
+    protected String getChangeMarker() {
+        StringBuilder marker = new StringBuilder();
+        describeFile(marker, petTypeFile.getFile());
+        describeFile(marker, miscFile.getFile());
+        describeFile(marker, localeFile.getFile());
+        describePetStorage(marker);
+
+        return UUID.nameUUIDFromBytes(marker.toString().getBytes(StandardCharsets.UTF_8)).toString();
+    }
 
-                updateValue(pet, "particle.type", pet.getParticle().getParticle().name());
-                updateValue(pet, "particle.speed", pet.getParticle().getSpeed());
-                break;
-            }
+    protected void describePetStorage(StringBuilder marker){
+        File[] shardFiles = petDirectory.listFiles((directory, name) -> name.endsWith(SHARD_EXTENSION));
+        if(shardFiles == null)
+            return;
 
-            default: {}
+        Arrays.sort(shardFiles);
+        for (File shardFile : shardFiles) {
+            describeFile(marker, shardFile);
         }
     }
 
+    protected static void describeFile(StringBuilder marker, File file){
+        marker.append(file.getName()).append(':')
+                .append(file.length()).append(':')
+                .append(file.lastModified()).append(';');
+    }
+
     @Override
     public void storeType(PetType type) {
-        cachedTypes.add(type);
+        typeRegistry.add(type);
 
         String key = type.getUniqueId().toString();
         petTypeFile.getConfiguration().set("types." + key + ".name", type.getName());
@@ -307,17 +501,88 @@ public class FlatfileStorageManager extends StorageManager {
 
     @Override
     public void removeType(PetType type) {
-        cachedTypes.remove(type);
+        typeRegistry.remove(type);
         petTypeFile.getConfiguration().set("types." + type.getUniqueId().toString(), null);
         petTypeFile.save();
     }
 
-    private void updateValue(Pet pet, String key, Object value){
-        if(!petDataFile.isLoaded())
-            petDataFile.load();
+    @Override
+    public void exportPets(Consumer<PetRecord> consumer) {
+        File[] shardFiles = petDirectory.listFiles((directory, name) -> name.endsWith(SHARD_EXTENSION));
+        if(shardFiles == null)
+            return;
+
+        Arrays.sort(shardFiles);
+
+        for (File shardFile : shardFiles) {
+            YamlConfiguration shard;
+            synchronized (shardLock) {
+                try {
+                    shard = readShard(shardFile);
+                } catch (IOException ex){
+                    throw new IllegalStateException("Unable to read pets from flatfile source", ex);
+                }
+            }
+
+            ConfigurationSection section = shard.getConfigurationSection("pets");
+            if(section == null)
+                continue;
+
+            for (String uuidString : section.getKeys(false)) {
+                ConfigurationSection petSection = section.getConfigurationSection(uuidString);
+                if(petSection == null)
+                    continue;
+
+                PetRecord record;
+                try {
+                    record = readRecord(UUID.fromString(uuidString), petSection);
+                } catch (IllegalArgumentException | NullPointerException ex){
+                    plugin.getLogger().warning("Skipping malformed pet '" + uuidString + "' in " + shardFile.getName());
+                    continue;
+                }
 
-        petDataFile.getConfiguration().set("pets." + pet.getUniqueId().toString() + "." + key, value);
-        petDataFile.save();
+                consumer.accept(record);
+            }
+        }
+    }
+
+    @Override
+    public long countPets() {
+        long[] count = {0};
+        exportPets(record -> count[0]++);
+        return count[0];
+    }
+
+    @Override
+    public void importTypes(List<PetType> types) {
+        YamlConfiguration configuration = petTypeFile.getConfiguration();
+
+        for (PetType type : types) {
+            String path = "types." + type.getUniqueId().toString();
+            configuration.set(path, null);
+            configuration.set(path + ".name", type.getName());
+            configuration.set(path + ".texture", type.getTexture());
+            configuration.set(path + ".price", type.getPrice());
+
+            if(type.getCategory() != null)
+                configuration.set(path + ".category", type.getCategory().getId());
+        }
+
+        petTypeFile.save();
+    }
+
+    @Override
+    public void importFoodItems(List<Food> foodItems) {
+        miscFile.getConfiguration().set("food_items", foodItems.stream()
+                .map(food -> food.getMaterial().name() + ":" + food.getAmount() + ":" + food.getValue())
+                .collect(Collectors.toList()));
+        miscFile.save();
+    }
+
+    @Override
+    public void importLocale(Map<String, Object> locale) {
+        locale.forEach((key, value) -> localeFile.getConfiguration().set("locale." + key, value));
+        localeFile.save();
     }
 
-}
\ No newline at end of file
+}
@@ -3,10 +3,12 @@ package net.llamasoftware.spigot.floatingpets.manager.storage.impl;
 import net.llamasoftware.spigot.floatingpets.FloatingPets;
 import net.llamasoftware.spigot.floatingpets.api.model.*;
 import net.llamasoftware.spigot.floatingpets.manager.sql.MySQLManager;
+import net.llamasoftware.spigot.floatingpets.manager.sql.SchemaMigrator;
+import net.llamasoftware.spigot.floatingpets.manager.storage.PreloadResult;
 import net.llamasoftware.spigot.floatingpets.manager.storage.StorageManager;
+import net.llamasoftware.spigot.floatingpets.manager.storage.queue.PendingWrite;
 import net.llamasoftware.spigot.floatingpets.model.misc.Food;
-import net.llamasoftware.spigot.floatingpets.model.pet.IParticle;
-import net.llamasoftware.spigot.floatingpets.model.pet.IPet;
+import net.llamasoftware.spigot.floatingpets.model.pet.PetRecord;
 import lombok.Builder;
 import lombok.Getter;
 import net.llamasoftware.spigot.floatingpets.util.Utility;
@@ -14,17 +16,20 @@ import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 
-import javax.sql.rowset.CachedRowSet;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class SQLStorageManager extends StorageManager {
 
     private final FloatingPets plugin;
+    @Getter
     private final MySQLManager mySqlManager;
     private final String prefix;
     private final YamlConfiguration defaultLocale;
+    private volatile boolean schemaReady;
 
     public SQLStorageManager(FloatingPets plugin, MySQLManager mySqlManager){
         super(plugin);
@@ -34,216 +39,268 @@ public class SQLStorageManager extends StorageManager {
         this.defaultLocale    = plugin.getDefaultLocaleFile().getConfiguration();
     }
 
+    /**
+     * Creates and migrates the tables once, reloads find the schema current and skip this.
+     */
     @Override
-    public void setup() { }
-
-    @Override
-    public void preload(Type storageType) {
+    public void setup() {
+        if(schemaReady)
+            return;
 
         createTables();
+        new SchemaMigrator(mySqlManager, prefix,
+                plugin.getIntSetting(Setting.GENERAL_STORAGE_MYSQL_MIGRATION_CHUNK_SIZE),
+                plugin.getLogger()).migrate();
+        schemaReady = true;
+    }
 
-        String table = getTable(storageType.name().toLowerCase());
-        CachedRowSet result = mySqlManager.query("SELECT * FROM " + table);
-
-        if(result == null) {
-            plugin.getLogger().warning("Unable to load " + storageType.name().toLowerCase() + " from MySQL source");
-            return;
-        }
+    @Override
+    public void preload(Type storageType, PreloadResult result) {
 
+        String table = getTable(storageType.name().toLowerCase());
         plugin.getLogger().info("Preloading " + storageType.name());
 
-        switch (storageType){
-            case LOCALE:
-
-                try {
-                    while (result.next()) {
-                        String key   = result.getString("l_key");
-                        String value = result.getString("value");
-
-                        cachedLocaleData.put(key, value);
+        try {
+            switch (storageType){
+                case PET:
+                    streamPetRecords(mySqlManager, prefix, null,
+                            record -> buildPet(record).ifPresent(result.getPets()::add));
+
+                    break;
+                case LOCALE:
+                    mySqlManager.stream("SELECT l_key, value FROM " + table,
+                            row -> result.getLocale().put(row.getString("l_key"), row.getString("value")));
+
+                    List<Object[]> missing = getDefaultLocaleValues().stream()
+                            .filter(item -> !result.getLocale().containsKey(item.getKey()))
+                            .map(item -> new Object[]{item.getKey(), item.getValue()})
+                            .collect(Collectors.toList());
+
+                    if(!missing.isEmpty()){
+                        mySqlManager.transaction(transaction -> {
+                            transaction.executeBatch("INSERT INTO " + table + " (l_key, value) VALUES(?, ?)", missing);
+                            bumpVersion(transaction);
+                        });
                     }
-                } catch (SQLException ex){
-                    plugin.getLogger().warning("An error occurred preloading " + storageType.name());
-                    ex.printStackTrace();
-                }
 
-                List<LocaleItem> items = getDefaultLocaleValues();
-                items.forEach(item -> {
-                    if(!cachedLocaleData.containsKey(item.getKey())){
-                        mySqlManager.execute("INSERT INTO " + table + " (l_key, value) VALUES(?, ?)", item.getKey(), item.getValue());
-                    }
-                });
-
-                break;
-            case PET:
-                try {
-                    while (result.next()) {
-                        UUID uniqueId = UUID.fromString(result.getString("uniqueId"));
-                        UUID ownerId = UUID.fromString(result.getString("owner"));
-                        Optional<PetType> type = plugin.getStorageManager()
-                                .getTypeByUniqueId(UUID.fromString(result.getString("type")));
-
-                        if(!type.isPresent()){
-                            plugin.getLogger().warning("Pet type specified by pet '" + uniqueId.toString() + "' is unavailable.");
-                            return;
-                        }
-
-                        String name = result.getString("name");
-
-                        IPet.IPetBuilder petBuilder = IPet.builder()
-                                .uniqueId(uniqueId)
-                                .owner(ownerId)
-                                .type(type.get())
-                                .name(name);
-
-                        String particleString = result.getString("particle");
-                        IParticle particle = null;
-                        if(!particleString.isEmpty()){
-                            particle = plugin.getGson().fromJson(particleString, IParticle.class);
-                            particle.setPlugin(plugin);
-                            petBuilder.particle(particle);
-                        }
+                    break;
+                case TYPE:
+                    mySqlManager.stream("SELECT * FROM " + table, row -> {
+                        PetType type = readType(row);
+                        result.getTypes().add(type);
+                        plugin.getLogger().info("Loaded type '" + type.getName() + "' by identifier '" + type.getUniqueId() + "'");
+                    });
 
-                        List<Skill> skills = Arrays.stream(result.getString("skills").split("---"))
-                                                                            .map(s -> Utility.deserializeSkill(s, plugin))
-                                                                            .collect(Collectors.toList());
-
-                        // TODO Test if this implementation works
-
-                        petBuilder.skills(skills);
-
-                        Pet pet = petBuilder.build();
-                        storePet(pet, false);
-
-                        if(particle != null){
-                            particle.setPet(pet);
-                        }
-
-                    }
-                } catch (SQLException ex){
-                    plugin.getLogger().warning(provideExceptionErrorMessage(storageType));
-                    ex.printStackTrace();
-                }
-
-                break;
-            case TYPE:
-
-                try {
-                    while (result.next()) {
-                        UUID uniqueId = UUID.fromString(result.getString("uniqueId"));
-                        String name = result.getString("name");
-                        String texture = result.getString("texture");
-                        double price = 0;
-
-                        if(!result.getString("price").isEmpty())
-                            price = result.getDouble("price");
-
-                        PetType.PetTypeBuilder petTypeBuilder = PetType.builder().uniqueId(uniqueId).name(name)
-                                .texture(texture).price(price);
-
-                        cachedTypes.add(petTypeBuilder.build());
-
-                        String categoryId = result.getString("category");
-                        PetCategory defaultCategory = plugin.getSettingManager().getCategoryById("default")
-                                .orElse(null);
-
-                        if(categoryId != null){
-                            petTypeBuilder.category(plugin.getSettingManager().getCategoryById(categoryId)
-                                    .orElse(defaultCategory));
-                        } else {
-                            petTypeBuilder.category(defaultCategory);
-                        }
-
-                        plugin.getLogger().info("Loaded type '" + name + "' by identifier '" + uniqueId + "'");
-                    }
-                } catch (SQLException ex){
-                    plugin.getLogger().warning(provideExceptionErrorMessage(storageType));
-                    ex.printStackTrace();
-                }
-
-                break;
-            case MISC:
-
-                try {
-                    while (result.next()){
-                        Material material = Material.valueOf(result.getString("material"));
-                        int amount = result.getInt("amount");
-                        double value = result.getDouble("value");
+                    break;
+                case MISC:
+                    mySqlManager.stream("SELECT * FROM " + table, row -> {
+                        Material material = Material.valueOf(row.getString("material"));
 
                         plugin.getLogger().info("Cached food item with material " + material.name());
-                        cachedFoodItems.add(new Food(material, amount, value));
-                    }
-                } catch (SQLException ex){
-                    plugin.getLogger().warning(provideExceptionErrorMessage(storageType));
-                    ex.printStackTrace();
-                }
+                        result.getFoodItems().add(new Food(material, row.getInt("amount"), row.getDouble("value")));
+                    });
 
+                    break;
+                default:
+            }
+        } catch (SQLException ex){
+            plugin.getLogger().warning(provideExceptionErrorMessage(storageType));
+            ex.printStackTrace();
+        }
+    }
 
-                break;
-            default:
+    private PetType readType(ResultSet row) throws SQLException {
+        PetType.PetTypeBuilder petTypeBuilder = PetType.builder()
+                .uniqueId(Utility.deserializeUniqueId(row.getBytes("uniqueId")))
+                .name(row.getString("name"))
+                .texture(row.getString("texture"))
+                .price(row.getDouble("price"));
+
+        String categoryId = row.getString("category");
+        PetCategory defaultCategory = plugin.getSettingManager().getCategoryById("default")
+                .orElse(null);
+
+        if(categoryId != null){
+            petTypeBuilder.category(plugin.getSettingManager().getCategoryById(categoryId)
+                    .orElse(defaultCategory));
+        } else {
+            petTypeBuilder.category(defaultCategory);
         }
+
+        return petTypeBuilder.build();
     }
 
     private void createTables(){
 
         String localeQuery = "" +
-                "create table if not exists fp_locale (\n" +
-                "    recordId int auto_increment\n" +
-                "        primary key,\n" +
+                "create table if not exists " + getTable("locale") + " (\n" +
+                "    recordId " + mySqlManager.getDialect().getAutoIncrementKey() + ",\n" +
                 "    l_key    text null,\n" +
                 "    value    text not null\n" +
                 ");";
-        String petQuery = "" +
-                "create table if not exists fp_pet (\n" +
-                "    recordId int auto_increment\n" +
-                "        primary key,\n" +
-                "    uniqueId text not null,\n" +
-                "    owner    text not null,\n" +
-                "    type     text not null,\n" +
-                "    name     text not null,\n" +
-                "    skills   text not null,\n" +
-                "    particle text not null\n" +
-                ");";
-        String typeQuery = "" +
-                "create table if not exists fp_type (\n" +
-                "    recordId int auto_increment\n" +
-                "        primary key,\n" +
-                "    uniqueId text not null,\n" +
-                "    name     text not null,\n" +
-                "    texture  text not null,\n" +
-                "    category  text not null,\n" +
-                "    price    text not null\n" +
-                ");";
         String miscQuery = "" +
-                "create table if not exists fp_misc (\n" +
-                "    recordId int auto_increment\n" +
-                "        primary key,\n" +
+                "create table if not exists " + getTable("misc") + " (\n" +
+                "    recordId " + mySqlManager.getDialect().getAutoIncrementKey() + ",\n" +
                 "    material text   not null,\n" +
                 "    amount   int    not null,\n" +
                 "    value    double not null\n" +
                 ");";
 
         mySqlManager.execute(localeQuery);
-        mySqlManager.execute(petQuery);
-        mySqlManager.execute(typeQuery);
         mySqlManager.execute(miscQuery);
 
+        mySqlManager.execute("create table if not exists " + getTable("change_version") + " (\n" +
+                "    version bigint not null\n" +
+                ");");
+        try {
+            if(mySqlManager.query("SELECT version FROM " + getTable("change_version"), row -> true).isEmpty())
+                mySqlManager.execute("INSERT INTO " + getTable("change_version") + " (version) VALUES(?)", 0);
+        } catch (SQLException ex){
+            plugin.getLogger().warning("Unable to read the change version from MySQL");
+            ex.printStackTrace();
+        }
+
+    }
+
+    /**
+     * Bumps the change version as part of the transaction, every write to the tables goes through here
+     * so a cache snapshot notices edits that keep the row counts.
+     */
+    private void bumpVersion(MySQLManager.Transaction transaction) throws SQLException {
+        transaction.execute("UPDATE " + getTable("change_version") + " SET version = version + 1");
     }
 
     @Override
-    public void storePet(Pet pet, boolean save) {
+    protected void writePets(List<PendingWrite> batch) {
+        List<Object[]> skillDeletes = new ArrayList<>();
+        List<Object[]> petDeletes   = new ArrayList<>();
+        List<Object[]> petInserts   = new ArrayList<>();
+        List<Object[]> skillInserts = new ArrayList<>();
+        Map<String, List<Object[]>> updates = new LinkedHashMap<>();
+
+        for (PendingWrite write : batch) {
+            byte[] uniqueId = Utility.serializeUniqueId(write.getUniqueId());
+
+            if(write.isRemoved()){
+                skillDeletes.add(new Object[]{uniqueId});
+                petDeletes.add(new Object[]{uniqueId});
+                continue;
+            }
+
+            PetRecord record = write.getRecord();
+
+            if(write.isCreated()){
+                skillDeletes.add(new Object[]{uniqueId});
+                petDeletes.add(new Object[]{uniqueId});
+                petInserts.add(new Object[]{uniqueId, Utility.serializeUniqueId(record.getOwner()),
+                        Utility.serializeUniqueId(record.getType()), record.getName(),
+                        record.getParticle(), record.getParticleSpeed()});
+                addSkills(skillInserts, uniqueId, record);
+                continue;
+            }
+
+            List<String> columns = new ArrayList<>();
+            List<Object> values  = new ArrayList<>();
+
+            for (Action action : write.getDirty()) {
+                switch (action){
+                    case RENAME:
+                        columns.add("name");
+                        values.add(record.getName());
+                        break;
+                    case PARTICLE:
+                        columns.add("particle");
+                        values.add(record.getParticle());
+                        columns.add("particle_speed");
+                        values.add(record.getParticleSpeed());
+                        break;
+                    case SKILL:
+                        skillDeletes.add(new Object[]{uniqueId});
+                        addSkills(skillInserts, uniqueId, record);
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            if(columns.isEmpty())
+                continue;
+
+            values.add(uniqueId);
+            updates.computeIfAbsent("UPDATE " + getTable("pet") + " SET "
+                    + columns.stream().map(column -> column + " = ?").collect(Collectors.joining(", "))
+                    + " WHERE uniqueId = ?", query -> new ArrayList<>()).add(values.toArray());
+        }
+
+        boolean committed = mySqlManager.transaction(transaction -> {
+            transaction.executeBatch("DELETE FROM " + getTable("pet_skill") + " WHERE pet = ?", skillDeletes);
+            transaction.executeBatch("DELETE FROM " + getTable("pet") + " WHERE uniqueId = ?", petDeletes);
+            transaction.executeBatch("INSERT INTO " + getTable("pet")
+                    + " (uniqueId, owner, type, name, particle, particle_speed) VALUES(?, ?, ?, ?, ?, ?)", petInserts);
+            transaction.executeBatch("INSERT INTO " + getTable("pet_skill") + " (pet, skill, level) VALUES(?, ?, ?)", skillInserts);
 
-        cachedPets.add(pet);
+            for (Map.Entry<String, List<Object[]>> update : updates.entrySet()) {
+                transaction.executeBatch(update.getKey(), update.getValue());
+            }
+
+            bumpVersion(transaction);
+        });
+
+        if(!committed)
+            throw new IllegalStateException("Unable to write " + batch.size() + " pet change(s) to MySQL");
+    }
 
-        if(save){
-            String particle = pet.hasParticle() ? plugin.getGson().toJson(pet.getParticle()) : "";
-            String skills = pet.getSkills().stream()
-                    .map(Utility::serializeSkill).collect(Collectors.joining("---"));
+    private void addSkills(List<Object[]> parameters, byte[] uniqueId, PetRecord record){
+        for (String skill : record.getSkills()) {
+            String[] data = skill.split(":");
+            parameters.add(new Object[]{uniqueId, data[0], Integer.parseInt(data[1])});
+        }
+    }
 
-            mySqlManager.execute("INSERT INTO " + getTable("pet") + " (uniqueId, owner, type, name, particle, skills) VALUES(?, ?, ?, ?, ?, ?)",
-                    pet.getUniqueId().toString(), pet.getOwner().toString(), pet.getType().getUniqueId().toString(), pet.getName(), particle, skills);
+    @Override
+    public List<PetRecord> loadPetRecordsByOwner(UUID owner) {
+        try {
+            return readPetRecords(mySqlManager, prefix, "p.owner = ?", Utility.serializeUniqueId(owner));
+        } catch (SQLException ex){
+            throw new IllegalStateException("Unable to load pets of " + owner + " from MySQL source", ex);
         }
+    }
+
+    public static List<PetRecord> readPetRecords(MySQLManager mySqlManager, String prefix, String condition, Object... values) throws SQLException {
+        List<PetRecord> records = new ArrayList<>();
+        streamPetRecords(mySqlManager, prefix, condition, records::add, values);
+        return records;
+    }
 
+    /**
+     * Streams pets together with their skills, optionally filtered by a condition on the pet table aliased as 'p'.
+     * Skills are read first since they are small, pets are then handed over one by one as rows arrive,
+     * outside the database thread on SQLite.
+     */
+    public static void streamPetRecords(MySQLManager mySqlManager, String prefix, String condition,
+                                        Consumer<PetRecord> consumer, Object... values) throws SQLException {
+        String where = condition == null ? "" : " WHERE " + condition;
+
+        Map<UUID, List<String>> skills = new HashMap<>();
+        mySqlManager.stream("SELECT s.pet, s.skill, s.level FROM " + prefix + "pet_skill s JOIN "
+                + prefix + "pet p ON p.uniqueId = s.pet" + where, row -> skills
+                .computeIfAbsent(Utility.deserializeUniqueId(row.getBytes("pet")), uniqueId -> new ArrayList<>())
+                .add(row.getString("skill") + ":" + row.getInt("level")), values);
+
+        mySqlManager.streamMapped(prefix + "pet p", condition, "p.uniqueId", row -> {
+            UUID uniqueId = Utility.deserializeUniqueId(row.getBytes("uniqueId"));
+
+            return PetRecord.builder()
+                    .uniqueId(uniqueId)
+                    .owner(Utility.deserializeUniqueId(row.getBytes("owner")))
+                    .type(Utility.deserializeUniqueId(row.getBytes("type")))
+                    .name(row.getString("name"))
+                    .skills(skills.getOrDefault(uniqueId, new ArrayList<>()))
+                    .particle(row.getString("particle"))
+                    .particleSpeed(row.getInt("particle_speed"))
+                    .extra(new HashMap<>())
+                    .build();
+        }, consumer, values);
     }
 
     public List<LocaleItem> getDefaultLocaleValues(){
@@ -287,48 +344,125 @@ public class SQLStorageManager extends StorageManager {
     }
 
     @Override
-    public void updatePet(Pet pet, StorageManager.Action action) {
-        switch (action){
-            case REMOVE:{
-                cachedPets.remove(pet);
-                mySqlManager.execute("DELETE FROM " + getTable("pet") + " WHERE uniqueId = ?", pet.getUniqueId().toString());
-                break;
-            }
+    public void storeType(PetType type) {
+        typeRegistry.add(type);
+        mySqlManager.transaction(transaction -> {
+            transaction.execute("INSERT INTO " + getTable("type") + " (uniqueId, name, texture, category, price) VALUES(?, ?, ?, ?, ?)",
+                    Utility.serializeUniqueId(type.getUniqueId()), type.getName(), type.getTexture(),
+                    type.getCategory() == null ? null : type.getCategory().getId(), type.getPrice());
+            bumpVersion(transaction);
+        });
+    }
 
-            case RENAME:{
-                updateValue(pet, "name", pet.getName());
-                break;
-            }
+    @Override
+    public void removeType(PetType type) {
+        typeRegistry.remove(type);
+        mySqlManager.transaction(transaction -> {
+            transaction.execute("DELETE FROM " + getTable("type") + " WHERE uniqueId = ?", Utility.serializeUniqueId(type.getUniqueId()));
+            bumpVersion(transaction);
+        });
+    }
 
-            case PARTICLE:{
-                if(!pet.hasParticle()){
-                    updateValue(pet, "particle", "");
-                    return;
-                }
+    /**
+     * The change version bumped by every write, with the row counts of every table
+     * to also notice rows added or removed by hand.
+     */
+    @Override
+    protected String getChangeMarker() {
+        try {
+            return mySqlManager.query("SELECT "
+                    + "(SELECT MAX(version) FROM " + getTable("change_version") + ") AS version, "
+                    + "(SELECT COUNT(*) FROM " + getTable("pet") + ") AS pets, "
+                    + "(SELECT COUNT(*) FROM " + getTable("pet_skill") + ") AS skills, "
+                    + "(SELECT COUNT(*) FROM " + getTable("type") + ") AS types, "
+                    + "(SELECT COUNT(*) FROM " + getTable("misc") + ") AS misc, "
+                    + "(SELECT COUNT(*) FROM " + getTable("locale") + ") AS locale", row ->
+                    row.getLong("version") + ":" + row.getLong("pets") + ":" + row.getLong("skills") + ":" + row.getLong("types")
+                            + ":" + row.getLong("misc") + ":" + row.getLong("locale")).get(0);
+        } catch (SQLException ex){
+            plugin.getLogger().warning("Unable to read storage change marker from MySQL");
+            ex.printStackTrace();
+            return null;
+        }
+    }
 
-                updateValue(pet, "particle", plugin.getGson().toJson(pet.getParticle()));
-                break;
-            }
+    @Override
+    public void exportPets(Consumer<PetRecord> consumer) {
+        try {
+            streamPetRecords(mySqlManager, prefix, null, consumer);
+        } catch (SQLException ex){
+            throw new IllegalStateException("Unable to read pets from MySQL source", ex);
+        }
+    }
 
-            default:{ }
+    @Override
+    public long countPets() {
+        try {
+            return mySqlManager.query("SELECT COUNT(*) AS count FROM " + getTable("pet"), row -> row.getLong("count")).get(0);
+        } catch (SQLException ex){
+            throw new IllegalStateException("Unable to count pets in MySQL source", ex);
         }
     }
 
     @Override
-    public void storeType(PetType type) {
-        String key = UUID.randomUUID().toString();
-        mySqlManager.execute("INSERT INTO " + getTable("type") + " (uniqueId, name, texture) VALUES(?, ?, ?)",
-                key, type.getName(), type.getTexture());
+    public void importTypes(List<PetType> types) {
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+
+        for (PetType type : types) {
+            byte[] uniqueId = Utility.serializeUniqueId(type.getUniqueId());
+            deletes.add(new Object[]{uniqueId});
+            inserts.add(new Object[]{uniqueId, type.getName(), type.getTexture(),
+                    type.getCategory() == null ? null : type.getCategory().getId(), type.getPrice()});
+        }
+
+        commit("types", transaction -> {
+            transaction.executeBatch("DELETE FROM " + getTable("type") + " WHERE uniqueId = ?", deletes);
+            transaction.executeBatch("INSERT INTO " + getTable("type")
+                    + " (uniqueId, name, texture, category, price) VALUES(?, ?, ?, ?, ?)", inserts);
+        });
     }
 
     @Override
-    public void removeType(PetType type) {
-        cachedTypes.remove(type);
-        mySqlManager.execute("DELETE FROM " + getTable("type") + " WHERE uniqueId=?", type.getUniqueId().toString());
+    public void importFoodItems(List<Food> foodItems) {
+        List<Object[]> inserts = foodItems.stream()
+                .map(food -> new Object[]{food.getMaterial().name(), food.getAmount(), food.getValue()})
+                .collect(Collectors.toList());
+
+        commit("food items", transaction -> {
+            transaction.execute("DELETE FROM " + getTable("misc"));
+            transaction.executeBatch("INSERT INTO " + getTable("misc") + " (material, amount, value) VALUES(?, ?, ?)", inserts);
+        });
     }
 
-    private void updateValue(Pet pet, String col, String value){
-        mySqlManager.execute("UPDATE " +  getTable("pet") + " SET " + col + "=? WHERE uniqueId=?", value, pet.getUniqueId().toString());
+    /**
+     * Only single messages are stored in MySQL, message lists always come from the locale file.
+     */
+    @Override
+    public void importLocale(Map<String, Object> locale) {
+        List<Object[]> inserts = locale.entrySet().stream()
+                .filter(entry -> entry.getValue() instanceof String)
+                .map(entry -> new Object[]{entry.getKey(), entry.getValue()})
+                .collect(Collectors.toList());
+
+        commit("locale", transaction -> {
+            transaction.execute("DELETE FROM " + getTable("locale"));
+            transaction.executeBatch("INSERT INTO " + getTable("locale") + " (l_key, value) VALUES(?, ?)", inserts);
+        });
+    }
+
+    private void commit(String name, MySQLManager.TransactionWork work){
+        if(!mySqlManager.transaction(transaction -> {
+            work.execute(transaction);
+            bumpVersion(transaction);
+        }))
+            throw new IllegalStateException("Unable to write " + name + " to MySQL");
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        mySqlManager.close();
     }
 
     private String provideExceptionErrorMessage(Type type){
@@ -0,0 +1,85 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage.impl.binary;
+
+import net.llamasoftware.spigot.floatingpets.manager.sql.MySQLManager;
+import net.llamasoftware.spigot.floatingpets.manager.sql.SchemaMigrator;
+import net.llamasoftware.spigot.floatingpets.manager.storage.impl.FlatfileStorageManager;
+import net.llamasoftware.spigot.floatingpets.manager.storage.impl.SQLStorageManager;
+import net.llamasoftware.spigot.floatingpets.model.pet.PetRecord;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Reads pets stored by the flatfile or MySQL backends so they can be imported into a {@link PetJournal}.
+ */
+public class JournalConverter {
+
+    private final Logger logger;
+
+    public JournalConverter(Logger logger){
+        this.logger = logger;
+    }
+
+    public List<PetRecord> readFlatfile(File petDirectory, File legacyFile){
+        Map<UUID, PetRecord> records = new LinkedHashMap<>();
+
+        if(legacyFile.exists())
+            readPetSection(YamlConfiguration.loadConfiguration(legacyFile), records);
+
+        File[] shardFiles = petDirectory.listFiles((directory, name) -> name.endsWith(".yml"));
+        if(shardFiles != null){
+            for (File shardFile : shardFiles) {
+                readPetSection(YamlConfiguration.loadConfiguration(shardFile), records);
+            }
+        }
+
+        return new ArrayList<>(records.values());
+    }
+
+    private void readPetSection(YamlConfiguration configuration, Map<UUID, PetRecord> records){
+        ConfigurationSection section = configuration.getConfigurationSection("pets");
+        if(section == null)
+            return;
+
+        for (String uniqueId : section.getKeys(false)) {
+            ConfigurationSection petSection = section.getConfigurationSection(uniqueId);
+            if(petSection == null)
+                continue;
+
+            try {
+                records.put(UUID.fromString(uniqueId), FlatfileStorageManager.readRecord(UUID.fromString(uniqueId), petSection));
+            } catch (IllegalArgumentException | NullPointerException ex){
+                logger.warning("Skipping malformed pet '" + uniqueId + "' while converting");
+            }
+        }
+    }
+
+    /**
+     * Reads every pet of the MySQL backend in whichever schema version its tables are. The tables are
+     * never migrated here, the database is only read and may still be used by other servers.
+     */
+    public List<PetRecord> readMySQL(MySQLManager mySqlManager, String prefix, int chunkSize) throws SQLException {
+        int version = new SchemaMigrator(mySqlManager, prefix, chunkSize, logger).detectVersion();
+        if(version == 0)
+            return new ArrayList<>();
+
+        if(version >= 2)
+            return SQLStorageManager.readPetRecords(mySqlManager, prefix, null);
+
+        List<PetRecord> records = new ArrayList<>();
+        mySqlManager.stream("SELECT * FROM " + prefix + "pet", row -> {
+            try {
+                records.add(SchemaMigrator.readLegacyPet(row));
+            } catch (RuntimeException ex){
+                logger.warning("Skipping malformed pet '" + row.getString("uniqueId") + "' while converting");
+            }
+        });
+
+        return records;
+    }
+
+}
@@ -0,0 +1,645 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage.impl.binary;
+
+import lombok.Getter;
+import net.llamasoftware.spigot.floatingpets.manager.storage.queue.PendingWrite;
+import net.llamasoftware.spigot.floatingpets.model.pet.PetRecord;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only pet journal. Every change is appended as a checksummed record,
+ * an in-memory index maps each pet to its latest record and a sidecar index file
+ * lets the next start skip replaying the whole journal.
+ *
+ * Journal record layout: [int length][byte op][uuid][payload][int crc32].
+ */
+public class PetJournal implements Closeable {
+
+    private static final int JOURNAL_MAGIC = 0x46504A31;
+    private static final int INDEX_MAGIC   = 0x46504931;
+
+    private static final int JOURNAL_HEADER_SIZE = 4;
+    private static final int INDEX_HEADER_SIZE   = 4 + 8 + 8 + 4 + 4;
+    private static final int INDEX_ENTRY_SIZE    = 16 + 16 + 8 + 4;
+    private static final int RECORD_OVERHEAD     = 4 + 4;
+    private static final int MAX_RECORD_SIZE     = 16 * 1024 * 1024;
+
+    private static final long COMPACT_THRESHOLD = 1024 * 1024;
+
+    private static final byte OP_PUT    = 1;
+    private static final byte OP_DELETE = 2;
+
+    @Getter
+    private final File file;
+    private final File indexFile;
+    private final Logger logger;
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private FileChannel channel;
+    @Getter
+    private long garbage;
+    /**
+     * Whether the journal file was created by the last {@link #open()}, as opposed to one that
+     * merely holds no pets because they were all removed.
+     */
+    @Getter
+    private boolean created;
+
+    public PetJournal(File file, File indexFile, Logger logger){
+        this.file      = file;
+        this.indexFile = indexFile;
+        this.logger    = logger;
+    }
+
+    public synchronized void open() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if(parent != null && !parent.exists())
+            parent.mkdirs();
+
+        channel = openChannel(file.toPath());
+        created = channel.size() == 0;
+
+        if(created){
+            writeFully(channel, journalHeader(), 0);
+            channel.force(true);
+        } else if(channel.size() < JOURNAL_HEADER_SIZE || readInt(channel, 0) != JOURNAL_MAGIC){
+            channel.close();
+            throw new IOException(file.getName() + " is not a pet journal");
+        }
+
+        long indexed = readIndex();
+        long replayFrom = indexed < 0 ? JOURNAL_HEADER_SIZE : indexed;
+
+        if(indexed < 0){
+            entries.clear();
+            garbage = 0;
+        }
+
+        int replayed = replay(replayFrom);
+        logger.info("  Opened pet journal with " + entries.size() + " pet(s)"
+                + (indexed < 0 ? ", index rebuilt" : "") + (replayed > 0 ? ", replayed " + replayed + " record(s)" : ""));
+    }
+
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    public synchronized List<PetRecord> readAll() throws IOException {
+        return read(entries.entrySet().stream());
+    }
+
+    public synchronized List<PetRecord> readByOwner(UUID owner) throws IOException {
+        return read(entries.entrySet().stream()
+                .filter(entry -> entry.getValue().owner.equals(owner)));
+    }
+
+    /**
+     * Hands over every pet in journal order without materializing them all at once. The lock is only
+     * held to read each record, so a slow consumer doesn't block appends. Pets removed meanwhile are
+     * skipped, pets changed meanwhile are handed over in their latest state.
+     */
+    public void forEach(Consumer<PetRecord> consumer) throws IOException {
+        List<UUID> order;
+        synchronized (this) {
+            order = entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().offset))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        }
+
+        for (UUID uniqueId : order) {
+            PetRecord record;
+            synchronized (this) {
+                Entry entry = entries.get(uniqueId);
+                if(entry == null)
+                    continue;
+
+                record = readRecord(uniqueId, entry);
+            }
+
+            consumer.accept(record);
+        }
+    }
+
+    private List<PetRecord> read(Stream<Map.Entry<UUID, Entry>> stream) throws IOException {
+        List<PetRecord> records = new ArrayList<>();
+        read(stream, records::add);
+        return records;
+    }
+
+    private void read(Stream<Map.Entry<UUID, Entry>> stream, Consumer<PetRecord> consumer) throws IOException {
+        List<Map.Entry<UUID, Entry>> sorted = stream
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().offset))
+                .collect(Collectors.toList());
+
+        for (Map.Entry<UUID, Entry> entry : sorted) {
+            consumer.accept(readRecord(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private PetRecord readRecord(UUID uniqueId, Entry entry) throws IOException {
+        ByteBuffer payload = readPayload(channel, entry.offset, channel.size());
+        if(payload == null)
+            throw new IOException("Corrupt journal record for pet " + uniqueId);
+
+        return decode(payload);
+    }
+
+    /**
+     * Appends a batch of changes and forces it to disk once.
+     */
+    public synchronized void append(List<PendingWrite> batch) throws IOException {
+        List<PendingWrite> applied = new ArrayList<>();
+        List<ByteBuffer> buffers   = new ArrayList<>();
+
+        for (PendingWrite write : batch) {
+            if(write.isRemoved() && !entries.containsKey(write.getUniqueId()))
+                continue;
+
+            applied.add(write);
+            buffers.add(write.isRemoved()
+                    ? encode(OP_DELETE, write.getUniqueId(), null)
+                    : encode(OP_PUT, write.getUniqueId(), write.getRecord()));
+        }
+
+        long position = writeRecords(buffers);
+
+        for (int i = 0; i < applied.size(); i++) {
+            PendingWrite write = applied.get(i);
+            int recordSize = buffers.get(i).remaining();
+
+            if(write.isRemoved()){
+                apply(OP_DELETE, write.getUniqueId(), null, position, recordSize);
+            } else {
+                apply(OP_PUT, write.getUniqueId(), write.getRecord().getOwner(), position, recordSize);
+            }
+
+            position += recordSize;
+        }
+    }
+
+    public synchronized void appendRecords(Collection<PetRecord> records) throws IOException {
+        List<PetRecord> applied  = new ArrayList<>(records);
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (PetRecord record : applied) {
+            buffers.add(encode(OP_PUT, record.getUniqueId(), record));
+        }
+
+        long position = writeRecords(buffers);
+
+        for (int i = 0; i < applied.size(); i++) {
+            PetRecord record = applied.get(i);
+            int recordSize = buffers.get(i).remaining();
+
+            apply(OP_PUT, record.getUniqueId(), record.getOwner(), position, recordSize);
+            position += recordSize;
+        }
+    }
+
+    /**
+     * Writes the records at the end of the journal and forces them to disk. If that fails part way
+     * the journal is cut back to its previous length, so no torn record is left behind.
+     * @return the position of the first record
+     */
+    private long writeRecords(List<ByteBuffer> buffers) throws IOException {
+        long start    = channel.size();
+        long position = start;
+
+        try {
+            for (ByteBuffer buffer : buffers) {
+                writeFully(channel, buffer.duplicate(), position);
+                position += buffer.remaining();
+            }
+
+            channel.force(false);
+        } catch (IOException ex){
+            try {
+                channel.truncate(start);
+            } catch (IOException truncate){
+                ex.addSuppressed(truncate);
+            }
+
+            throw ex;
+        }
+
+        return start;
+    }
+
+    public synchronized boolean shouldCompact() throws IOException {
+        long live = channel.size() - JOURNAL_HEADER_SIZE - garbage;
+        return garbage > COMPACT_THRESHOLD && garbage > live;
+    }
+
+    /**
+     * Rewrites the journal with only the latest record of every pet and swaps it in place.
+     */
+    public synchronized void compact() throws IOException {
+        long before = channel.size();
+        File compactFile = new File(file.getPath() + ".compact");
+        Map<UUID, Entry> compacted = new HashMap<>();
+
+        try (FileChannel target = FileChannel.open(compactFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            writeFully(target, journalHeader(), 0);
+            long position = JOURNAL_HEADER_SIZE;
+
+            List<Map.Entry<UUID, Entry>> sorted = entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().offset))
+                    .collect(Collectors.toList());
+
+            for (Map.Entry<UUID, Entry> entry : sorted) {
+                Entry current = entry.getValue();
+                ByteBuffer raw = ByteBuffer.allocate(current.size);
+                readFully(channel, raw, current.offset);
+                raw.flip();
+
+                writeFully(target, raw, position);
+                compacted.put(entry.getKey(), new Entry(current.owner, position, current.size));
+                position += current.size;
+            }
+
+            target.force(true);
+        }
+
+        channel.close();
+        try {
+            move(compactFile.toPath(), file.toPath());
+        } finally {
+            channel = openChannel(file.toPath());
+        }
+
+        entries.clear();
+        entries.putAll(compacted);
+        garbage = 0;
+        writeIndex();
+
+        logger.info("Compacted pet journal from " + before + " to " + channel.size() + " bytes");
+    }
+
+    public synchronized void writeIndex() throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(entries.size() * INDEX_ENTRY_SIZE);
+        for (Map.Entry<UUID, Entry> entry : entries.entrySet()) {
+            Entry value = entry.getValue();
+            body.putLong(entry.getKey().getMostSignificantBits())
+                    .putLong(entry.getKey().getLeastSignificantBits())
+                    .putLong(value.owner.getMostSignificantBits())
+                    .putLong(value.owner.getLeastSignificantBits())
+                    .putLong(value.offset)
+                    .putInt(value.size);
+        }
+        body.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE)
+                .putInt(INDEX_MAGIC)
+                .putLong(channel.size())
+                .putLong(garbage)
+                .putInt(entries.size())
+                .putInt((int) crc.getValue());
+        header.flip();
+
+        Path temporary = new File(indexFile.getPath() + ".tmp").toPath();
+        try (FileChannel target = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(target, header, 0);
+            writeFully(target, body, INDEX_HEADER_SIZE);
+            target.force(true);
+        }
+
+        move(temporary, indexFile.toPath());
+    }
+
+    /**
+     * Closes and deletes a journal that was just created, so the next start creates it again.
+     */
+    public synchronized void discard() throws IOException {
+        if(channel != null)
+            channel.close();
+
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(indexFile.toPath());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(channel == null || !channel.isOpen())
+            return;
+
+        writeIndex();
+        channel.close();
+    }
+
+    /**
+     * Loads the index file through a memory map.
+     * @return the journal length the index covers, or -1 if it is missing or unusable
+     */
+    private long readIndex(){
+        if(!indexFile.exists())
+            return -1;
+
+        try (FileChannel indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            long indexSize = indexChannel.size();
+            if(indexSize < INDEX_HEADER_SIZE)
+                return -1;
+
+            MappedByteBuffer buffer = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexSize);
+            if(buffer.getInt() != INDEX_MAGIC)
+                return -1;
+
+            long journalLength = buffer.getLong();
+            long indexedGarbage = buffer.getLong();
+            int count = buffer.getInt();
+            int checksum = buffer.getInt();
+
+            if(count < 0 || indexSize != INDEX_HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE
+                    || journalLength < JOURNAL_HEADER_SIZE || journalLength > channel.size())
+                return -1;
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if((int) crc.getValue() != checksum)
+                return -1;
+
+            entries.clear();
+            for (int i = 0; i < count; i++) {
+                UUID uniqueId = new UUID(buffer.getLong(), buffer.getLong());
+                UUID owner    = new UUID(buffer.getLong(), buffer.getLong());
+                long offset   = buffer.getLong();
+                int size      = buffer.getInt();
+
+                if(offset < JOURNAL_HEADER_SIZE || offset + size > journalLength)
+                    return -1;
+
+                entries.put(uniqueId, new Entry(owner, offset, size));
+            }
+
+            garbage = indexedGarbage;
+            return journalLength;
+        } catch (IOException ex){
+            logger.warning("Unable to read " + indexFile.getName() + ", rebuilding it from the journal");
+            return -1;
+        }
+    }
+
+    /**
+     * Replays records from the given position, truncating a torn or corrupt tail.
+     */
+    private int replay(long position) throws IOException {
+        long journalSize = channel.size();
+        int replayed = 0;
+
+        while (position < journalSize){
+            ByteBuffer payload = readPayload(channel, position, journalSize);
+            if(payload == null){
+                logger.warning("Truncating pet journal at byte " + position + " of " + journalSize + " (incomplete record)");
+                channel.truncate(position);
+                channel.force(true);
+                break;
+            }
+
+            int recordSize = payload.remaining() + RECORD_OVERHEAD;
+            byte op = payload.get();
+            UUID uniqueId = readUUID(payload);
+            UUID owner = op == OP_PUT ? readUUID(payload) : null;
+
+            apply(op, uniqueId, owner, position, recordSize);
+            position += recordSize;
+            replayed++;
+        }
+
+        return replayed;
+    }
+
+    private void apply(byte op, UUID uniqueId, UUID owner, long position, int recordSize){
+        Entry previous;
+        if(op == OP_PUT){
+            previous = entries.put(uniqueId, new Entry(owner, position, recordSize));
+        } else {
+            previous = entries.remove(uniqueId);
+            garbage += recordSize;
+        }
+
+        if(previous != null)
+            garbage += previous.size;
+    }
+
+    private static ByteBuffer readPayload(FileChannel channel, long position, long limit) throws IOException {
+        if(position + RECORD_OVERHEAD > limit)
+            return null;
+
+        int length = readInt(channel, position);
+        if(length <= 0 || length > MAX_RECORD_SIZE || position + RECORD_OVERHEAD + length > limit)
+            return null;
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, position + 4);
+        payload.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if((int) crc.getValue() != readInt(channel, position + 4 + length))
+            return null;
+
+        return payload;
+    }
+
+    private static ByteBuffer encode(byte op, UUID uniqueId, PetRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(op);
+        writeUUID(out, uniqueId);
+
+        if(op == OP_PUT){
+            writeUUID(out, record.getOwner());
+            writeUUID(out, record.getType());
+            writeNullableUTF(out, record.getName());
+
+            out.writeShort(record.getSkills().size());
+            for (String skill : record.getSkills()) {
+                out.writeUTF(skill);
+            }
+
+            out.writeBoolean(record.hasParticle());
+            if(record.hasParticle()){
+                out.writeUTF(record.getParticle());
+                out.writeInt(record.getParticleSpeed());
+            }
+
+            byte[] extra = encodeExtra(record.getExtra());
+            out.writeInt(extra.length);
+            out.write(extra);
+        }
+
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer buffer = ByteBuffer.allocate(payload.length + RECORD_OVERHEAD)
+                .putInt(payload.length)
+                .put(payload)
+                .putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static PetRecord decode(ByteBuffer payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array(),
+                payload.arrayOffset() + payload.position(), payload.remaining()));
+
+        if(in.readByte() != OP_PUT)
+            throw new IOException("Journal entry does not point at a stored pet");
+
+        PetRecord.PetRecordBuilder builder = PetRecord.builder()
+                .uniqueId(readUUID(in))
+                .owner(readUUID(in))
+                .type(readUUID(in))
+                .name(readNullableUTF(in));
+
+        int skillCount = in.readUnsignedShort();
+        List<String> skills = new ArrayList<>(skillCount);
+        for (int i = 0; i < skillCount; i++) {
+            skills.add(in.readUTF());
+        }
+        builder.skills(skills);
+
+        if(in.readBoolean()){
+            builder.particle(in.readUTF())
+                    .particleSpeed(in.readInt());
+        }
+
+        byte[] extra = new byte[in.readInt()];
+        in.readFully(extra);
+
+        return builder.extra(decodeExtra(extra)).build();
+    }
+
+    /* Extra data holds Bukkit serializables (e.g. storage contents), so it is kept as YAML */
+
+    private static byte[] encodeExtra(Map<String, Object> extra){
+        if(extra == null || extra.isEmpty())
+            return new byte[0];
+
+        YamlConfiguration configuration = new YamlConfiguration();
+        extra.forEach(configuration::set);
+        return configuration.saveToString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Object> decodeExtra(byte[] data) throws IOException {
+        Map<String, Object> extra = new HashMap<>();
+        if(data.length == 0)
+            return extra;
+
+        YamlConfiguration configuration = new YamlConfiguration();
+        try {
+            configuration.loadFromString(new String(data, StandardCharsets.UTF_8));
+        } catch (InvalidConfigurationException ex){
+            throw new IOException("Invalid extra data in pet journal", ex);
+        }
+
+        for (String key : configuration.getKeys(false)) {
+            extra.put(key, configuration.get(key));
+        }
+
+        return extra;
+    }
+
+    private static ByteBuffer journalHeader(){
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE).putInt(JOURNAL_MAGIC);
+        header.flip();
+        return header;
+    }
+
+    private static FileChannel openChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex){
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static int readInt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        readFully(channel, buffer, position);
+        buffer.flip();
+        return buffer.getInt();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()){
+            int read = channel.read(buffer, position);
+            if(read < 0)
+                throw new EOFException();
+
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()){
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static UUID readUUID(ByteBuffer buffer){
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static UUID readUUID(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeUUID(DataOutput out, UUID uniqueId) throws IOException {
+        out.writeLong(uniqueId.getMostSignificantBits());
+        out.writeLong(uniqueId.getLeastSignificantBits());
+    }
+
+    private static String readNullableUTF(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableUTF(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if(value != null)
+            out.writeUTF(value);
+    }
+
+    private static class Entry {
+
+        private final UUID owner;
+        private final long offset;
+        private final int size;
+
+        private Entry(UUID owner, long offset, int size) {
+            this.owner  = owner;
+            this.offset = offset;
+            this.size   = size;
+        }
+
+    }
+
+}
@@ -0,0 +1,101 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage.migration;
+
+import lombok.Getter;
+import net.llamasoftware.spigot.floatingpets.model.config.YAMLFile;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Progress of a migration between two storage types, saved after every stage and pet batch
+ * so an interrupted migration picks up where it stopped.
+ */
+public class MigrationCheckpoint {
+
+    private final File file;
+    @Getter
+    private final String from;
+    @Getter
+    private final String to;
+    private final Set<StorageMigration.Stage> completed;
+    @Getter
+    private long pets;
+
+    private MigrationCheckpoint(File file, String from, String to){
+        this.file      = file;
+        this.from      = from;
+        this.to        = to;
+        this.completed = EnumSet.noneOf(StorageMigration.Stage.class);
+    }
+
+    /**
+     * Loads the checkpoint of a migration between the given types, or starts a new one
+     * if there is none or it belongs to other types.
+     */
+    public static MigrationCheckpoint load(File file, String from, String to){
+        MigrationCheckpoint checkpoint = new MigrationCheckpoint(file, from, to);
+        if(!file.exists())
+            return checkpoint;
+
+        YamlConfiguration configuration = YamlConfiguration.loadConfiguration(file);
+        if(!from.equalsIgnoreCase(configuration.getString("from")) || !to.equalsIgnoreCase(configuration.getString("to")))
+            return checkpoint;
+
+        for (String stage : configuration.getStringList("completed")) {
+            try {
+                checkpoint.completed.add(StorageMigration.Stage.valueOf(stage));
+            } catch (IllegalArgumentException ignored){
+            }
+        }
+
+        checkpoint.pets = configuration.getLong("pets");
+        return checkpoint;
+    }
+
+    public boolean isResumed(){
+        return !completed.isEmpty() || pets > 0;
+    }
+
+    public boolean isCompleted(StorageMigration.Stage stage){
+        return completed.contains(stage);
+    }
+
+    public void complete(StorageMigration.Stage stage){
+        completed.add(stage);
+        save();
+    }
+
+    public void setPets(long pets){
+        this.pets = pets;
+        save();
+    }
+
+    public void save(){
+        YamlConfiguration configuration = new YamlConfiguration();
+        configuration.set("from", from);
+        configuration.set("to", to);
+        configuration.set("completed", completed.stream().map(Enum::name).collect(Collectors.toList()));
+        configuration.set("pets", pets);
+
+        try {
+            YAMLFile.saveAtomically(configuration, file);
+        } catch (IOException ex){
+            throw new UncheckedIOException("Unable to save migration checkpoint " + file.getName(), ex);
+        }
+    }
+
+    public void delete(){
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException ex){
+            throw new UncheckedIOException("Unable to delete migration checkpoint " + file.getName(), ex);
+        }
+    }
+
+}
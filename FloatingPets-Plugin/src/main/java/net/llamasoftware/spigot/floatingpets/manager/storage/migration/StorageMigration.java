@@ -0,0 +1,239 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage.migration;
+
+import lombok.Getter;
+import net.llamasoftware.spigot.floatingpets.FloatingPets;
+import net.llamasoftware.spigot.floatingpets.api.model.Setting;
+import net.llamasoftware.spigot.floatingpets.locale.Locale;
+import net.llamasoftware.spigot.floatingpets.manager.storage.StorageManager;
+import net.llamasoftware.spigot.floatingpets.model.pet.PetRecord;
+import org.bukkit.Bukkit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copies types, food items, locale and pets from one storage type to another.
+ *
+ * Pets are read and written at the same time: a reader thread streams them from the source
+ * into a bounded queue of batches while the calling thread writes the batches to the target.
+ * Every written batch is recorded in a checkpoint, so a failed migration resumes after the
+ * last written batch when run again.
+ */
+public class StorageMigration {
+
+    private static final String CHECKPOINT_FILE = "migration.yml";
+    private static final List<PetRecord> END = new ArrayList<>(0);
+
+    private final FloatingPets plugin;
+    @Getter
+    private final String from;
+    @Getter
+    private final String to;
+    private final Reporter reporter;
+    private final int batchSize;
+    private final int queuedBatches;
+    private final List<StorageManager> opened;
+
+    public StorageMigration(FloatingPets plugin, String from, String to, Reporter reporter){
+        this.plugin        = plugin;
+        this.from          = from.toLowerCase();
+        this.to            = to.toLowerCase();
+        this.reporter      = reporter;
+        this.batchSize     = plugin.getIntSetting(Setting.GENERAL_STORAGE_MIGRATION_BATCH_SIZE);
+        this.queuedBatches = plugin.getIntSetting(Setting.GENERAL_STORAGE_MIGRATION_QUEUED_BATCHES);
+        this.opened        = new ArrayList<>();
+    }
+
+    /**
+     * Whether the migration writes to the storage the plugin is currently running on,
+     * in which case its caches have to be reloaded afterwards.
+     */
+    public boolean isTargetActive(){
+        return isActive(to);
+    }
+
+    /**
+     * Runs the whole migration on the calling thread. Migrating into the active storage
+     * has to run on the main thread, with nothing else changing pets.
+     */
+    public void run(){
+        if(isTargetActive() && !Bukkit.isPrimaryThread())
+            throw new IllegalStateException("Migrating into the active storage is only possible offline");
+
+        long start = System.currentTimeMillis();
+        MigrationCheckpoint checkpoint = MigrationCheckpoint.load(new File(plugin.getDataFolder(), CHECKPOINT_FILE), from, to);
+
+        if(checkpoint.isResumed())
+            reporter.report("commands.admin.migrate.resumed", new Locale.Placeholder("pets", String.valueOf(checkpoint.getPets())));
+
+        try {
+            StorageManager source = resolve(from);
+            StorageManager target = resolve(to);
+
+            if(!checkpoint.isCompleted(Stage.TYPES)){
+                target.importTypes(source.exportTypes());
+                completeStage(checkpoint, Stage.TYPES);
+            }
+
+            if(!checkpoint.isCompleted(Stage.FOOD)){
+                target.importFoodItems(source.exportFoodItems());
+                completeStage(checkpoint, Stage.FOOD);
+            }
+
+            if(!checkpoint.isCompleted(Stage.LOCALE)){
+                target.importLocale(source.exportLocale());
+                completeStage(checkpoint, Stage.LOCALE);
+            }
+
+            if(!checkpoint.isCompleted(Stage.PETS)){
+                migratePets(source, target, checkpoint);
+                completeStage(checkpoint, Stage.PETS);
+            }
+
+            verify(source, target);
+            checkpoint.delete();
+        } finally {
+            opened.forEach(StorageManager::close);
+        }
+
+        reporter.report("commands.admin.migrate.finished",
+                new Locale.Placeholder("from", from),
+                new Locale.Placeholder("to", to),
+                new Locale.Placeholder("time", String.valueOf(System.currentTimeMillis() - start)));
+    }
+
+    private void migratePets(StorageManager source, StorageManager target, MigrationCheckpoint checkpoint){
+        long skip  = checkpoint.getPets();
+        long total = source.countPets();
+
+        BlockingQueue<List<PetRecord>> queue = new ArrayBlockingQueue<>(queuedBatches);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            try {
+                readPets(source, queue, skip);
+            } catch (RuntimeException ex){
+                failure.set(ex);
+            }
+
+            if(!Thread.currentThread().isInterrupted())
+                put(queue, END);
+        }, "FloatingPets-Migration-Reader");
+
+        reader.start();
+
+        long written = skip;
+        try {
+            while (true){
+                List<PetRecord> batch = queue.take();
+                if(batch == END)
+                    break;
+
+                target.importPets(batch);
+                written += batch.size();
+                checkpoint.setPets(written);
+
+                reporter.report("commands.admin.migrate.progress",
+                        new Locale.Placeholder("pets", String.valueOf(written)),
+                        new Locale.Placeholder("total", String.valueOf(total)),
+                        new Locale.Placeholder("percent", String.valueOf(total == 0 ? 100 : written * 100 / total)));
+            }
+
+            reader.join();
+        } catch (InterruptedException ex){
+            reader.interrupt();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Migration was interrupted", ex);
+        } catch (RuntimeException ex){
+            reader.interrupt();
+            throw ex;
+        }
+
+        if(failure.get() != null)
+            throw new IllegalStateException("Unable to read pets from " + from, failure.get());
+    }
+
+    private void readPets(StorageManager source, BlockingQueue<List<PetRecord>> queue, long skip){
+        long[] seen = {0};
+        List<List<PetRecord>> batch = new ArrayList<>();
+        batch.add(new ArrayList<>(batchSize));
+
+        source.exportPets(record -> {
+            if(seen[0]++ < skip)
+                return;
+
+            batch.get(0).add(record);
+            if(batch.get(0).size() >= batchSize){
+                put(queue, batch.get(0));
+                batch.set(0, new ArrayList<>(batchSize));
+            }
+        });
+
+        if(!batch.get(0).isEmpty())
+            put(queue, batch.get(0));
+    }
+
+    private void put(BlockingQueue<List<PetRecord>> queue, List<PetRecord> batch){
+        try {
+            queue.put(batch);
+        } catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Migration was interrupted", ex);
+        }
+    }
+
+    private void verify(StorageManager source, StorageManager target){
+        long expected = source.countPets();
+        long actual   = target.countPets();
+
+        reporter.report(expected == actual ? "commands.admin.migrate.verified" : "commands.admin.migrate.mismatch",
+                new Locale.Placeholder("source", String.valueOf(expected)),
+                new Locale.Placeholder("target", String.valueOf(actual)));
+    }
+
+    private void completeStage(MigrationCheckpoint checkpoint, Stage stage){
+        checkpoint.complete(stage);
+        reporter.report("commands.admin.migrate.stage", new Locale.Placeholder("stage", stage.name().toLowerCase()));
+    }
+
+    /**
+     * The active storage is reused after writing out its pending changes, other types are opened just for the migration.
+     */
+    private StorageManager resolve(String type){
+        if(isActive(type)){
+            StorageManager active = plugin.getStorageManager();
+            active.getWriteQueue().flush();
+            return active;
+        }
+
+        StorageManager storage = plugin.createStorageManager(type);
+        if(storage == null)
+            throw new IllegalArgumentException("Unknown storage type '" + type + "'");
+
+        opened.add(storage);
+        storage.open();
+        return storage;
+    }
+
+    private boolean isActive(String type){
+        return type.equalsIgnoreCase(plugin.getStringSetting(Setting.GENERAL_STORAGE_TYPE));
+    }
+
+    public enum Stage {
+        TYPES,
+        FOOD,
+        LOCALE,
+        PETS
+    }
+
+    public interface Reporter {
+
+        void report(String key, Locale.Placeholder... placeholders);
+
+    }
+
+}
@@ -0,0 +1,21 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage.queue;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Thrown by a writer when only part of a batch reached the backend.
+ * Only the failed writes are queued again.
+ */
+public class PartialWriteException extends RuntimeException {
+
+    @Getter
+    private final List<PendingWrite> failed;
+
+    public PartialWriteException(String message, List<PendingWrite> failed, Throwable cause){
+        super(message, cause);
+        this.failed = failed;
+    }
+
+}
@@ -0,0 +1,96 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage.queue;
+
+import lombok.Getter;
+import net.llamasoftware.spigot.floatingpets.manager.storage.StorageManager;
+import net.llamasoftware.spigot.floatingpets.model.pet.PetRecord;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * All changes made to a single pet since the last flush.
+ */
+public class PendingWrite {
+
+    @Getter
+    private final UUID uniqueId;
+    @Getter
+    private final UUID owner;
+    @Getter
+    private PetRecord record;
+    @Getter
+    private boolean created;
+    @Getter
+    private boolean removed;
+    @Getter
+    private int attempts;
+
+    private final EnumSet<StorageManager.Action> dirty;
+
+    PendingWrite(UUID uniqueId, UUID owner) {
+        this.uniqueId = uniqueId;
+        this.owner    = owner;
+        this.dirty    = EnumSet.noneOf(StorageManager.Action.class);
+    }
+
+    /**
+     * A write that stores the whole record, replacing any stored pet with the same id.
+     */
+    public static PendingWrite created(PetRecord record){
+        PendingWrite write = new PendingWrite(record.getUniqueId(), record.getOwner());
+        write.markCreated(record);
+        return write;
+    }
+
+    void markCreated(PetRecord record){
+        this.record  = record;
+        this.created = true;
+        this.removed = false;
+        dirty.clear();
+    }
+
+    void markDirty(PetRecord record, StorageManager.Action action){
+        this.record = record;
+        if(!created)
+            dirty.add(action);
+    }
+
+    void markRemoved(){
+        this.removed = true;
+        dirty.clear();
+    }
+
+    int markFailed(){
+        return ++attempts;
+    }
+
+    /**
+     * Applies a newer write for the same pet on top of this failed one, so both are retried as one.
+     */
+    void absorb(PendingWrite newer){
+        if(newer.removed){
+            markRemoved();
+            return;
+        }
+
+        if(newer.created){
+            markCreated(newer.record);
+            return;
+        }
+
+        this.record  = newer.record;
+        this.removed = false;
+        if(!created)
+            dirty.addAll(newer.dirty);
+    }
+
+    public Set<StorageManager.Action> getDirty() {
+        return dirty;
+    }
+
+    public boolean isDirty(StorageManager.Action action){
+        return dirty.contains(action);
+    }
+
+}
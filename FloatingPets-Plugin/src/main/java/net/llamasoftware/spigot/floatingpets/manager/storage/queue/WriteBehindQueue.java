@@ -0,0 +1,349 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage.queue;
+
+import lombok.Getter;
+import net.llamasoftware.spigot.floatingpets.api.model.Pet;
+import net.llamasoftware.spigot.floatingpets.manager.storage.StorageManager;
+import net.llamasoftware.spigot.floatingpets.model.pet.PetRecord;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces pet changes per pet and writes them to the backend in batches
+ * from a dedicated storage thread.
+ *
+ * When the queue is full the producing thread flushes it itself, which
+ * keeps memory bounded at the cost of blocking that caller. A batch that
+ * fails, or the part of it named by a {@link PartialWriteException}, is
+ * queued again, merged with newer changes to the same pets, and retried
+ * with backoff until it has failed {@link #MAX_ATTEMPTS} times.
+ *
+ * While backing off, or while another thread is flushing, producers never
+ * flush themselves: changes keep coalescing, and once the queue holds
+ * {@link #OVERFLOW_FACTOR} times its capacity the oldest are discarded.
+ */
+public class WriteBehindQueue {
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long MAX_BACKOFF = 60_000;
+    private static final int OVERFLOW_FACTOR = 4;
+
+    private final Consumer<List<PendingWrite>> writer;
+    private final Logger logger;
+    @Getter
+    private final int capacity;
+    private final int batchSize;
+    private final long interval;
+
+    private final Map<UUID, PendingWrite> pending = new LinkedHashMap<>();
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong enqueued     = new AtomicLong();
+    private final AtomicLong coalesced    = new AtomicLong();
+    private final AtomicLong written      = new AtomicLong();
+    private final AtomicLong batches      = new AtomicLong();
+    private final AtomicLong backPressure = new AtomicLong();
+    private final AtomicLong failures     = new AtomicLong();
+    private final AtomicLong discarded    = new AtomicLong();
+    private volatile int highWaterMark;
+    private volatile long lastFlushMillis;
+    private volatile long retryAfter;
+    private volatile boolean flushing;
+    private int consecutiveFailures;
+
+    private boolean shutdown;
+
+    public WriteBehindQueue(Consumer<List<PendingWrite>> writer, Logger logger,
+                            int capacity, int batchSize, long interval) {
+        this.writer    = writer;
+        this.logger    = logger;
+        this.capacity  = Math.max(1, capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.interval  = Math.max(50, interval);
+        this.executor  = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FloatingPets-Storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start(){
+        executor.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void store(Pet pet){
+        PetRecord record = PetRecord.of(pet);
+        enqueue(pet, write -> write.markCreated(record));
+    }
+
+    public void update(Pet pet, StorageManager.Action action){
+        if(action == StorageManager.Action.REMOVE){
+            remove(pet);
+            return;
+        }
+
+        PetRecord record = PetRecord.of(pet);
+        enqueue(pet, write -> write.markDirty(record, action));
+    }
+
+    public void remove(Pet pet){
+        boolean full;
+
+        synchronized (pending) {
+            PendingWrite write = pending.get(pet.getUniqueId());
+            enqueued.incrementAndGet();
+
+            if(write != null && write.isCreated()){
+                // Never reached the backend, so there is nothing to delete
+                pending.remove(pet.getUniqueId());
+                coalesced.incrementAndGet();
+                return;
+            }
+
+            if(write == null){
+                write = new PendingWrite(pet.getUniqueId(), pet.getOwner());
+                pending.put(pet.getUniqueId(), write);
+            } else {
+                coalesced.incrementAndGet();
+            }
+
+            write.markRemoved();
+            full = trackSize();
+        }
+
+        if(full)
+            applyBackPressure();
+    }
+
+    private void enqueue(Pet pet, Consumer<PendingWrite> change){
+        boolean full;
+
+        synchronized (pending) {
+            enqueued.incrementAndGet();
+
+            PendingWrite write = pending.get(pet.getUniqueId());
+            if(write == null){
+                write = new PendingWrite(pet.getUniqueId(), pet.getOwner());
+                pending.put(pet.getUniqueId(), write);
+            } else {
+                coalesced.incrementAndGet();
+            }
+
+            change.accept(write);
+            full = trackSize();
+        }
+
+        if(full)
+            applyBackPressure();
+    }
+
+    private boolean trackSize(){
+        int size = pending.size();
+        if(size > highWaterMark)
+            highWaterMark = size;
+
+        return size >= capacity;
+    }
+
+    private void applyBackPressure(){
+        if(flushing || System.currentTimeMillis() < retryAfter){
+            trimOverflow();
+            return;
+        }
+
+        long count = backPressure.incrementAndGet();
+        if(count == 1 || count % 100 == 0){
+            logger.warning("Storage write queue is full (" + capacity + " pets), flushing on "
+                    + Thread.currentThread().getName() + " (" + count + " time(s) so far)");
+        }
+
+        flush();
+    }
+
+    /**
+     * Discards the oldest changes beyond the overflow limit, so an unavailable backend
+     * can't grow the queue without bound.
+     */
+    private void trimOverflow(){
+        int dropped = 0;
+
+        synchronized (pending) {
+            Iterator<PendingWrite> iterator = pending.values().iterator();
+            while (pending.size() > capacity * OVERFLOW_FACTOR && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                dropped++;
+            }
+        }
+
+        if(dropped > 0){
+            long total = discarded.addAndGet(dropped);
+            logger.severe("Storage is unavailable and the write queue overflowed, discarded " + dropped
+                    + " pet change(s) (" + total + " so far)");
+        }
+    }
+
+    private void flushSafely(){
+        if(System.currentTimeMillis() < retryAfter)
+            return;
+
+        try {
+            flush();
+        } catch (Throwable throwable){
+            logger.log(Level.WARNING, "An error occurred while flushing storage writes", throwable);
+        }
+    }
+
+    /**
+     * Writes everything that is currently pending, blocking until done or until a batch fails.
+     * Flushes are serialized so writes always reach the backend in order.
+     */
+    public void flush(){
+        synchronized (flushLock) {
+            flushing = true;
+
+            try {
+                long start = System.currentTimeMillis();
+                List<PendingWrite> batch;
+
+                while (!(batch = drain()).isEmpty()) {
+                    batches.incrementAndGet();
+
+                    try {
+                        writer.accept(batch);
+                        written.addAndGet(batch.size());
+                        consecutiveFailures = 0;
+                        retryAfter = 0;
+                    } catch (RuntimeException ex){
+                        List<PendingWrite> failed = ex instanceof PartialWriteException
+                                ? ((PartialWriteException) ex).getFailed() : batch;
+
+                        written.addAndGet(batch.size() - failed.size());
+                        failures.addAndGet(failed.size());
+                        logger.log(Level.WARNING, "Unable to write " + failed.size() + " of " + batch.size()
+                                + " pet(s) to storage, retrying", ex);
+
+                        requeue(failed);
+                        consecutiveFailures++;
+                        retryAfter = System.currentTimeMillis()
+                                + Math.min(MAX_BACKOFF, interval << Math.min(consecutiveFailures, 16));
+                        break;
+                    }
+                }
+
+                lastFlushMillis = System.currentTimeMillis() - start;
+            } finally {
+                flushing = false;
+            }
+        }
+    }
+
+    /**
+     * Puts a failed batch back in front of the queue. Newer changes to the same pets are merged into it,
+     * writes that failed too often are discarded.
+     */
+    private void requeue(List<PendingWrite> batch){
+        synchronized (pending) {
+            Map<UUID, PendingWrite> retried = new LinkedHashMap<>();
+
+            for (PendingWrite write : batch) {
+                PendingWrite newer = pending.remove(write.getUniqueId());
+
+                if(write.markFailed() >= MAX_ATTEMPTS){
+                    discard(write, "after " + MAX_ATTEMPTS + " failed attempts");
+                    if(newer != null)
+                        retried.put(newer.getUniqueId(), newer);
+
+                    continue;
+                }
+
+                if(newer != null)
+                    write.absorb(newer);
+
+                retried.put(write.getUniqueId(), write);
+            }
+
+            retried.putAll(pending);
+            pending.clear();
+            pending.putAll(retried);
+        }
+    }
+
+    private void discard(PendingWrite write, String reason){
+        discarded.incrementAndGet();
+        logger.severe("Discarded storage write for pet " + write.getUniqueId()
+                + " of " + write.getOwner() + " " + reason);
+    }
+
+    private List<PendingWrite> drain(){
+        synchronized (pending) {
+            List<PendingWrite> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<PendingWrite> iterator = pending.values().iterator();
+
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+
+            return batch;
+        }
+    }
+
+    public void shutdown(){
+        if(shutdown)
+            return;
+
+        shutdown = true;
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+        }
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && getPendingCount() > 0; attempt++) {
+            flush();
+        }
+
+        synchronized (pending) {
+            if(!pending.isEmpty()){
+                logger.severe("Unable to write " + pending.size() + " pet change(s) to storage before shutdown, they are lost");
+                pending.values().forEach(write -> discard(write, "at shutdown"));
+                pending.clear();
+            }
+        }
+    }
+
+    public int getPendingCount(){
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    public long getEnqueued(){ return enqueued.get(); }
+
+    public long getCoalesced(){ return coalesced.get(); }
+
+    public long getWritten(){ return written.get(); }
+
+    public long getBatches(){ return batches.get(); }
+
+    public long getBackPressure(){ return backPressure.get(); }
+
+    public long getFailures(){ return failures.get(); }
+
+    public long getDiscarded(){ return discarded.get(); }
+
+    public int getHighWaterMark(){ return highWaterMark; }
+
+    public long getLastFlushMillis(){ return lastFlushMillis; }
+
+}
@@ -0,0 +1,295 @@
+package net.llamasoftware.spigot.floatingpets.manager.storage.snapshot;
+
+import lombok.Builder;
+import lombok.Getter;
+import net.llamasoftware.spigot.floatingpets.api.model.PetCategory;
+import net.llamasoftware.spigot.floatingpets.api.model.PetType;
+import net.llamasoftware.spigot.floatingpets.manager.storage.StorageManager;
+import net.llamasoftware.spigot.floatingpets.model.misc.Food;
+import net.llamasoftware.spigot.floatingpets.model.pet.PetRecord;
+import org.bukkit.Material;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Copy of the storage caches written on shutdown, so the next start can skip reading the backend.
+ *
+ * The snapshot carries the change marker of the backend it was taken from and is only
+ * trusted while the backend still reports the same marker.
+ *
+ * Layout: [int magic][int version][marker][int preloaded types][locale][types][food items][pets][int crc32].
+ */
+@Builder
+public class CacheSnapshot {
+
+    private static final int MAGIC   = 0x46505331;
+    private static final int VERSION = 1;
+
+    private static final byte LOCALE_STRING = 0;
+    private static final byte LOCALE_LIST   = 1;
+
+    @Getter
+    private final String marker;
+    @Getter
+    private final Set<StorageManager.Type> preloaded;
+    @Getter
+    private final Map<String, Object> locale;
+    @Getter
+    private final List<PetType> types;
+    @Getter
+    private final List<Food> foodItems;
+    @Getter
+    private final List<PetRecord> pets;
+
+    public void write(File file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, marker);
+
+        int mask = 0;
+        for (StorageManager.Type type : preloaded) {
+            mask |= 1 << type.ordinal();
+        }
+        out.writeInt(mask);
+
+        out.writeInt(locale.size());
+        for (Map.Entry<String, Object> entry : locale.entrySet()) {
+            writeString(out, entry.getKey());
+
+            if(entry.getValue() instanceof List){
+                List<?> values = (List<?>) entry.getValue();
+                out.writeByte(LOCALE_LIST);
+                out.writeInt(values.size());
+                for (Object value : values) {
+                    writeString(out, String.valueOf(value));
+                }
+            } else {
+                out.writeByte(LOCALE_STRING);
+                writeString(out, String.valueOf(entry.getValue()));
+            }
+        }
+
+        out.writeInt(types.size());
+        for (PetType type : types) {
+            writeUUID(out, type.getUniqueId());
+            writeString(out, type.getName());
+            writeString(out, type.getTexture());
+            writeNullableString(out, type.getCategory() == null ? null : type.getCategory().getId());
+            out.writeDouble(type.getPrice());
+        }
+
+        out.writeInt(foodItems.size());
+        for (Food food : foodItems) {
+            writeString(out, food.getMaterial().name());
+            out.writeInt(food.getAmount());
+            out.writeDouble(food.getValue());
+        }
+
+        out.writeInt(pets.size());
+        for (PetRecord pet : pets) {
+            writeUUID(out, pet.getUniqueId());
+            writeUUID(out, pet.getOwner());
+            writeUUID(out, pet.getType());
+            writeString(out, pet.getName());
+
+            out.writeInt(pet.getSkills().size());
+            for (String skill : pet.getSkills()) {
+                writeString(out, skill);
+            }
+
+            writeNullableString(out, pet.getParticle());
+            out.writeInt(pet.getParticleSpeed());
+
+            YamlConfiguration extra = new YamlConfiguration();
+            pet.getExtra().forEach(extra::set);
+            writeString(out, pet.getExtra().isEmpty() ? "" : extra.saveToString());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+
+        Path target    = file.toPath();
+        Path temporary = target.resolveSibling(file.getName() + ".tmp");
+        Files.write(temporary, bytes.toByteArray());
+
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex){
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Maps and reads a snapshot, or returns empty if there is none or it is damaged or outdated.
+     */
+    public static Optional<CacheSnapshot> read(File file, Function<String, PetCategory> categories) throws IOException {
+        if(!file.exists())
+            return Optional.empty();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if(channel.size() < 12 || channel.size() > Integer.MAX_VALUE)
+                return Optional.empty();
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int end = buffer.limit() - 4;
+
+            ByteBuffer content = buffer.duplicate();
+            content.limit(end);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+
+            if(buffer.getInt(end) != (int) crc.getValue() || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                return Optional.empty();
+
+            buffer.position(8);
+            buffer.limit(end);
+            return Optional.of(read(buffer, categories));
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException ex){
+            throw new IOException("Malformed cache snapshot " + file.getName(), ex);
+        }
+    }
+
+    private static CacheSnapshot read(ByteBuffer in, Function<String, PetCategory> categories) throws IOException {
+        CacheSnapshotBuilder builder = CacheSnapshot.builder()
+                .marker(readString(in));
+
+        Set<StorageManager.Type> preloaded = EnumSet.noneOf(StorageManager.Type.class);
+        int mask = in.getInt();
+        for (StorageManager.Type type : StorageManager.Type.values()) {
+            if((mask & 1 << type.ordinal()) != 0)
+                preloaded.add(type);
+        }
+        builder.preloaded(preloaded);
+
+        int localeCount = in.getInt();
+        Map<String, Object> locale = new HashMap<>(localeCount * 2);
+        for (int i = 0; i < localeCount; i++) {
+            String key = readString(in);
+
+            if(in.get() == LOCALE_LIST){
+                int size = in.getInt();
+                List<String> values = new ArrayList<>(size);
+                for (int j = 0; j < size; j++) {
+                    values.add(readString(in));
+                }
+
+                locale.put(key, values);
+            } else {
+                locale.put(key, readString(in));
+            }
+        }
+        builder.locale(locale);
+
+        int typeCount = in.getInt();
+        List<PetType> types = new ArrayList<>(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            types.add(PetType.builder()
+                    .uniqueId(readUUID(in))
+                    .name(readString(in))
+                    .texture(readString(in))
+                    .category(categories.apply(readNullableString(in)))
+                    .price(in.getDouble())
+                    .build());
+        }
+        builder.types(types);
+
+        int foodCount = in.getInt();
+        List<Food> foodItems = new ArrayList<>(foodCount);
+        for (int i = 0; i < foodCount; i++) {
+            foodItems.add(new Food(Material.valueOf(readString(in)), in.getInt(), in.getDouble()));
+        }
+        builder.foodItems(foodItems);
+
+        int petCount = in.getInt();
+        List<PetRecord> pets = new ArrayList<>(petCount);
+        for (int i = 0; i < petCount; i++) {
+            PetRecord.PetRecordBuilder pet = PetRecord.builder()
+                    .uniqueId(readUUID(in))
+                    .owner(readUUID(in))
+                    .type(readUUID(in))
+                    .name(readString(in));
+
+            int skillCount = in.getInt();
+            List<String> skills = new ArrayList<>(skillCount);
+            for (int j = 0; j < skillCount; j++) {
+                skills.add(readString(in));
+            }
+
+            pets.add(pet.skills(skills)
+                    .particle(readNullableString(in))
+                    .particleSpeed(in.getInt())
+                    .extra(readExtra(readString(in)))
+                    .build());
+        }
+        builder.pets(pets);
+
+        return builder.build();
+    }
+
+    private static Map<String, Object> readExtra(String data) throws IOException {
+        Map<String, Object> extra = new HashMap<>();
+        if(data.isEmpty())
+            return extra;
+
+        YamlConfiguration configuration = new YamlConfiguration();
+        try {
+            configuration.loadFromString(data);
+        } catch (InvalidConfigurationException ex){
+            throw new IOException("Invalid extra data in cache snapshot", ex);
+        }
+
+        for (String key : configuration.getKeys(false)) {
+            extra.put(key, configuration.get(key));
+        }
+
+        return extra;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if(value != null)
+            writeString(out, value);
+    }
+
+    private static void writeUUID(DataOutputStream out, UUID uniqueId) throws IOException {
+        out.writeLong(uniqueId.getMostSignificantBits());
+        out.writeLong(uniqueId.getLeastSignificantBits());
+    }
+
+    private static String readString(ByteBuffer in){
+        byte[] data = new byte[in.getInt()];
+        in.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    private static String readNullableString(ByteBuffer in){
+        return in.get() != 0 ? readString(in) : null;
+    }
+
+    private static UUID readUUID(ByteBuffer in){
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+}
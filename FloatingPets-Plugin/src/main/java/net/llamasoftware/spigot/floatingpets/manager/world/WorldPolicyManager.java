@@ -0,0 +1,90 @@
+package net.llamasoftware.spigot.floatingpets.manager.world;
+
+import net.llamasoftware.spigot.floatingpets.FloatingPets;
+import net.llamasoftware.spigot.floatingpets.api.model.Setting;
+import net.llamasoftware.spigot.floatingpets.model.misc.WorldPolicy;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the {@link WorldPolicy} of each world once and keeps it by world id.
+ *
+ * A world's policy takes the values of its section under "world_policies.worlds", falling back
+ * to "world_policies.default". Worlds excluded by the world filter are never enabled.
+ */
+public class WorldPolicyManager {
+
+    private static final String SECTION = "settings.world_policies";
+
+    private final FloatingPets plugin;
+    private final Map<UUID, WorldPolicy> policies = new ConcurrentHashMap<>();
+
+    public WorldPolicyManager(FloatingPets plugin){
+        this.plugin = plugin;
+    }
+
+    public WorldPolicy getPolicy(World world){
+        WorldPolicy policy = policies.get(world.getUID());
+        if(policy == null){
+            policy = resolve(world.getName());
+            policies.put(world.getUID(), policy);
+        }
+
+        return policy;
+    }
+
+    public boolean isEnabled(World world){
+        return getPolicy(world).isEnabled();
+    }
+
+    /**
+     * Drops every resolved policy, called when the configuration is reloaded.
+     */
+    public void invalidate(){
+        policies.clear();
+    }
+
+    private WorldPolicy resolve(String name){
+        ConfigurationSection defaults = plugin.getConfig().getConfigurationSection(SECTION + ".default");
+        ConfigurationSection world    = plugin.getConfig().getConfigurationSection(SECTION + ".worlds." + name);
+
+        boolean excluded = plugin.isSetting(Setting.WORLD_FILTER)
+                && plugin.getConfig().getStringList("settings.world_filter.excluded").contains(name);
+
+        return WorldPolicy.builder()
+                .enabled(!excluded && getBoolean(world, defaults, "enabled"))
+                .maxPetsPerPlayer(getLimit(world, defaults, "max_pets_per_player"))
+                .maxPetsPerChunk(getLimit(world, defaults, "max_pets_per_chunk"))
+                .particles(getBoolean(world, defaults, "particles"))
+                .animations(getBoolean(world, defaults, "animations"))
+                .tickRate(Math.max(1, getInt(world, defaults, "tick_rate", 1)))
+                .build();
+    }
+
+    private static boolean getBoolean(ConfigurationSection world, ConfigurationSection defaults, String key){
+        if(world != null && world.isBoolean(key))
+            return world.getBoolean(key);
+
+        return defaults == null || defaults.getBoolean(key, true);
+    }
+
+    /**
+     * A limit, where zero or less means unlimited.
+     */
+    private static int getLimit(ConfigurationSection world, ConfigurationSection defaults, String key){
+        int limit = getInt(world, defaults, key, -1);
+        return limit <= 0 ? Integer.MAX_VALUE : limit;
+    }
+
+    private static int getInt(ConfigurationSection world, ConfigurationSection defaults, String key, int def){
+        if(world != null && world.isInt(key))
+            return world.getInt(key);
+
+        return defaults == null ? def : defaults.getInt(key, def);
+    }
+
+}
@@ -1,5 +1,6 @@
 package net.llamasoftware.spigot.floatingpets.menu;
 
+import net.llamasoftware.spigot.floatingpets.manager.menu.MenuRenderCache;
 import net.llamasoftware.spigot.floatingpets.util.ItemBuilder;
 import net.llamasoftware.spigot.floatingpets.menu.model.Menu;
 import net.llamasoftware.spigot.floatingpets.menu.model.MenuItem;
@@ -8,9 +9,13 @@ import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
-public abstract class ListMenu<T> extends Menu implements Cloneable {
+public abstract class ListMenu<T> extends Menu {
+
+    private final Map<Object, ItemStack> prebuilt = new IdentityHashMap<>();
 
     public ListMenu(String title, int rows) {
         super(title, rows);
@@ -22,18 +27,13 @@ public abstract class ListMenu<T> extends Menu implements Cloneable {
         List<T> list = (List<T>) getData("list");
         int menuIndex    = (int) getData("menuIndex");
 
-        Menu nextMenu = null;
-        try {
-            nextMenu = (Menu) this.clone();
-        } catch (CloneNotSupportedException e) {
-            e.printStackTrace();
-        }
-
-        if(nextMenu == null)
-            return null;
+        repository.add(transformMenuForPagination(this, menuIndex, list.size()));
+        addControls(repository, (getRows() - 1) * 9);
 
-        nextMenu.setData("list", list);
-        repository.add(transformMenuForPagination(nextMenu, menuIndex, list.size()));
+        ItemStack[] rendered = isCached() ? getRenderCache().get(getClass(), menuIndex, getLanguage(), list) : null;
+        boolean render = rendered == null;
+        if(render)
+            rendered = new ItemStack[getRows() * 9];
 
         int i;
         for(i = 0; i<9*(getRows() - 1); i++) {
@@ -49,7 +49,10 @@ public abstract class ListMenu<T> extends Menu implements Cloneable {
                 }
 
                 if (obj != null) {
-                    final ItemStack itemStack = buildItem(obj);
+                    if(render || rendered[i] == null)
+                        rendered[i] = prebuilt.containsKey(obj) ? prebuilt.remove(obj) : buildItem(obj);
+
+                    final ItemStack itemStack = rendered[i];
                     repository.add(new MenuItem(itemStack, i) {
                         @Override
                         public void onClick(Player player) {
@@ -61,9 +64,70 @@ public abstract class ListMenu<T> extends Menu implements Cloneable {
             }
         }
 
+        if(render && isCached())
+            getRenderCache().put(getClass(), menuIndex, getLanguage(), list, rendered);
+
+        prebuilt.clear();
+
         return repository;
     }
 
+    /**
+     * Adds extra items to the bottom row, which starts at the given slot.
+     */
+    protected void addControls(MenuItemRepository repository, int lastRow){ }
+
+    /**
+     * Whether rendered pages may be shared between viewers. Only valid if {@link #buildItem(Object)}
+     * depends on nothing but the entry and the viewer's language.
+     */
+    protected boolean isCached(){
+        return false;
+    }
+
+    /**
+     * Pages of cached list menus are usually shared, only the first viewer builds them in slices.
+     */
+    @Override
+    public boolean isComposedInSlices() {
+        return isCached();
+    }
+
+    /**
+     * Builds the entries of the current page one by one, unless the page is already cached.
+     */
+    @Override  @SuppressWarnings("unchecked")
+    public boolean render(long budget) {
+        long deadline = System.nanoTime() + budget;
+        List<T> list  = (List<T>) getData("list");
+        int menuIndex = (int) getData("menuIndex");
+
+        if(isCached() && getRenderCache().contains(getClass(), menuIndex, getLanguage(), list))
+            return true;
+
+        int perPage = (getRows() - 1) * 9;
+        int end     = Math.min(list.size(), perPage * (menuIndex + 1));
+        for (int index = perPage * menuIndex; index < end; index++) {
+            T obj = list.get(index);
+            if(obj == null || prebuilt.containsKey(obj))
+                continue;
+
+            prebuilt.put(obj, buildItem(obj));
+            if(System.nanoTime() >= deadline)
+                return index == end - 1;
+        }
+
+        return true;
+    }
+
+    private MenuRenderCache getRenderCache(){
+        return getMenuManager().getRenderCache();
+    }
+
+    private String getLanguage(){
+        return getPlugin().getLocale().getBundle(getViewer()).getLanguage();
+    }
+
     public MenuItemRepository transformMenuForPagination(Menu menu, int menuIndex, int size){
 
         MenuItemRepository repository = new MenuItemRepository();
@@ -87,7 +151,7 @@ public abstract class ListMenu<T> extends Menu implements Cloneable {
                 @Override
                 public void onClick(Player player) {
                     menu.setData("menuIndex", menuIndex - 1);
-                    getMenuManager().openMenu(player, menu, getPlugin());
+                    menu.refresh();
                 }
             });
         }
@@ -97,7 +161,7 @@ public abstract class ListMenu<T> extends Menu implements Cloneable {
                 @Override
                 public void onClick(Player player) {
                     menu.setData("menuIndex", menuIndex + 1);
-                    getMenuManager().openMenu(player, menu, getPlugin());
+                    menu.refresh();
                 }
             });
         }
@@ -22,6 +22,11 @@ public class MenuCategoryList extends ListMenu<PetCategory> {
         return new ItemBuilder(category.getDisplayItem()).name("&3" + category.getName()).build();
     }
 
+    @Override
+    protected boolean isCached() {
+        return true;
+    }
+
     @Override
     public void onClick(Player player, PetCategory category, int index) {
         getMenuManager().openPetSelector(player, category);
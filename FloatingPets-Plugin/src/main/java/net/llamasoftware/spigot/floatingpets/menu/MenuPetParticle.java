@@ -22,12 +22,17 @@ public class MenuPetParticle extends ListMenu<ParticleInfo> {
 
     @Override
     public ItemStack buildItem(ParticleInfo particle) {
-        String itemName = getPlugin().getLocale().getText("menus.particle.item",
+        String itemName = getPlugin().getLocale().getText(getViewer(), "menus.particle.item",
                 new Locale.Placeholder("particle", particle.getParticle().name()));
 
         return new ItemBuilder(particle.getMaterial()).name(itemName).build();
     }
 
+    @Override
+    protected boolean isCached() {
+        return true;
+    }
+
     @Override
     public void onClick(Player player, ParticleInfo particle, int index) {
         FloatingPets plugin = getPlugin();
@@ -39,7 +44,7 @@ public class MenuPetParticle extends ListMenu<ParticleInfo> {
             pet.setParticle(null);
         }
 
-        if (plugin.isSetting(Setting.PET_PARTICLE_CUSTOMIZATION) && player.hasPermission("floatingpets.particle.customization")) {
+        if (plugin.isSetting(Setting.PET_PARTICLE_CUSTOMIZATION) && plugin.getPermissionManager().getSnapshot(player).isParticleCustomization()) {
             MenuPetParticleCustomize menu = new MenuPetParticleCustomize(plugin.getStorageManager()
                     .getLocaleByKey("menus.particle-customization.title"), particle.getParticle());
             menu.setData("index", pIndex);
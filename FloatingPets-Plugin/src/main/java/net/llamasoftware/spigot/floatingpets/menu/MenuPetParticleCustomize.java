@@ -38,8 +38,7 @@ public class MenuPetParticleCustomize extends Menu {
             @Override
             public void onClick(Player player) {
                 applyParticle(player, particle,
-                        Integer.parseInt(getPlugin().getStringSetting(
-                                Setting.valueOf("PET_PARTICLE_SPEED_" + speed.toUpperCase()))), index);
+                        getPlugin().getIntSetting(Setting.valueOf("PET_PARTICLE_SPEED_" + speed.toUpperCase())), index);
             }
         });
     }
@@ -1,7 +1,11 @@
 package net.llamasoftware.spigot.floatingpets.menu;
 
 import net.llamasoftware.spigot.floatingpets.api.model.PetType;
+import net.llamasoftware.spigot.floatingpets.menu.model.MenuItem;
+import net.llamasoftware.spigot.floatingpets.menu.model.MenuItemRepository;
+import net.llamasoftware.spigot.floatingpets.util.ItemBuilder;
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
@@ -17,7 +21,25 @@ public class MenuPetSelector extends ListMenu<PetType> {
 
     @Override
     public ItemStack buildItem(PetType type) {
-        return getPlugin().getUtility().getPetDisplayItem(type).build();
+        return getPlugin().getUtility().getPetDisplayItem(type, getViewer()).build();
+    }
+
+    @Override
+    protected boolean isCached() {
+        return true;
+    }
+
+    @Override
+    protected void addControls(MenuItemRepository repository, int lastRow) {
+        ItemStack search = new ItemBuilder(Material.COMPASS)
+                .name(getPlugin().getLocale().getText(getViewer(), "menus.selector.search")).build();
+
+        repository.add(new MenuItem(search, lastRow) {
+            @Override
+            public void onClick(Player player) {
+                getMenuManager().promptSearch(player);
+            }
+        });
     }
 
     @Override
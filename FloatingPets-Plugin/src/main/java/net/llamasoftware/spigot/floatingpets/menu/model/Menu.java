@@ -5,8 +5,10 @@ import lombok.Setter;
 import net.llamasoftware.spigot.floatingpets.FloatingPets;
 import net.llamasoftware.spigot.floatingpets.manager.menu.MenuManager;
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -26,6 +28,11 @@ public abstract class Menu {
     private MenuManager menuManager;
     @Getter
     private FloatingPets plugin;
+    @Getter
+    private Player viewer;
+    @Getter
+    private Inventory inventory;
+    private MenuItem[] table;
 
     private final Map<String, Object> data = new HashMap<>();
 
@@ -36,22 +43,122 @@ public abstract class Menu {
     }
 
     public Optional<MenuItem> getItemByStack(int slot){
-        return getItems().getAll().stream()
-                .filter(menuItem -> menuItem.getSlot() == slot)
-                .findAny();
+        return Optional.ofNullable(getItem(slot));
+    }
+
+    /**
+     * Item in the given slot of the item table, which is built on open and on {@link #refresh()} only.
+     * Null while the menu is still being composed.
+     */
+    public MenuItem getItem(int slot){
+        return table != null && slot >= 0 && slot < table.length ? table[slot] : null;
+    }
+
+    public boolean hasValidSize(){
+        return rows > 0 && rows < 7;
     }
 
     public void open(Player player, MenuManager menuManager, FloatingPets plugin){
-        if(!(rows > 0 && rows < 7))
+        if(!hasValidSize())
             return;
 
+        prepare(player, menuManager, plugin);
+        show(compose());
+    }
+
+    public void prepare(Player player, MenuManager menuManager, FloatingPets plugin){
         this.menuManager = menuManager;
         this.plugin = plugin;
+        this.viewer = player;
+    }
+
+    /**
+     * Whether the items of this menu are built over several ticks with {@link #render(long)}.
+     */
+    public boolean isComposedInSlices(){
+        return false;
+    }
+
+    /**
+     * Builds items ahead of {@link #compose()} until the budget in nanoseconds is used up.
+     * @return whether every item is built
+     */
+    public boolean render(long budget){
+        return true;
+    }
+
+    /**
+     * Builds the item table without touching the inventory.
+     */
+    public MenuItem[] compose(){
+        return buildTable();
+    }
+
+    /**
+     * Shows a composed item table. A page of this menu that is still open, such as the loading
+     * page, is updated in place; only slots whose contents changed are set, so the window
+     * stays open and unchanged slots send nothing.
+     */
+    public void show(MenuItem[] composed){
+        boolean reuse = isShowing();
+        if(!reuse)
+            inventory = Bukkit.createInventory(null, rows * 9, title);
+
+        table = composed;
+        for (int slot = 0; slot < table.length && slot < inventory.getSize(); slot++) {
+            ItemStack stack = table[slot] == null ? null : table[slot].getStack();
+            if(!isSame(inventory.getItem(slot), stack))
+                inventory.setItem(slot, stack);
+        }
+
+        if(!reuse)
+            viewer.openInventory(inventory);
+    }
+
+    /**
+     * Opens a placeholder page with the given item in its center, filled once composition finishes.
+     */
+    public void showLoading(ItemStack placeholder){
+        inventory = Bukkit.createInventory(null, rows * 9, title);
+        inventory.setItem(inventory.getSize() / 2, placeholder);
+        viewer.openInventory(inventory);
+    }
+
+    /**
+     * Whether the viewer currently looks at this menu's inventory.
+     */
+    public boolean isShowing(){
+        return inventory != null && viewer != null && viewer.getOpenInventory().getTopInventory().equals(inventory);
+    }
+
+    /**
+     * Builds the items again and updates the open inventory in place.
+     */
+    public void refresh(){
+        if(inventory == null)
+            return;
+
+        show(buildTable());
+    }
+
+    private MenuItem[] buildTable(){
+        MenuItem[] built = new MenuItem[rows * 9];
+        for (MenuItem item : getItems().getAll()) {
+            if(item.getSlot() >= 0 && item.getSlot() < built.length)
+                built[item.getSlot()] = item;
+        }
+
+        return built;
+    }
+
+    private static boolean isSame(ItemStack current, ItemStack updated){
+        boolean currentEmpty = current == null || current.getType() == Material.AIR;
+        boolean updatedEmpty = updated == null || updated.getType() == Material.AIR;
 
-        Inventory inventory = Bukkit.createInventory(null, rows * 9, title);
-        getItems().getAll().forEach(item -> inventory.setItem(item.getSlot(), item.getStack()));
+        if(currentEmpty || updatedEmpty)
+            return currentEmpty == updatedEmpty;
 
-        player.openInventory(inventory);
+        return current.equals(updated);
     }
 
     public void onClose(Player player){}
@@ -7,6 +7,11 @@ import org.bukkit.plugin.Plugin;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 public class YAMLFile {
 
@@ -50,10 +55,31 @@ public class YAMLFile {
 
     public void save(){
         try {
-            configuration.save(file);
+            saveAtomically(configuration, file);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Writes the configuration to a temporary file next to the target and moves it in place,
+     * so a crash mid-write never leaves a truncated file behind.
+     */
+    public static void saveAtomically(YamlConfiguration configuration, File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if(parent != null && !parent.exists())
+            parent.mkdirs();
+
+        Path target    = file.toPath();
+        Path temporary = new File(parent, file.getName() + ".tmp").toPath();
+
+        Files.write(temporary, configuration.saveToString().getBytes(StandardCharsets.UTF_8));
+
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex){
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package net.llamasoftware.spigot.floatingpets.model.misc;
+
+import lombok.Builder;
+import lombok.Getter;
+import net.llamasoftware.spigot.floatingpets.api.model.PetType;
+import org.bukkit.Particle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Everything a player may do with pets, evaluated from their permissions once
+ * so hot paths never call hasPermission.
+ */
+@Builder
+public class PermissionSnapshot {
+
+    private final long expiry;
+
+    @Getter
+    private final long petLimit;
+    @Getter
+    private final long selectCooldown;
+    @Getter
+    private final boolean coloredNames;
+    @Getter
+    private final boolean particleCustomization;
+
+    private final Set<PetType> permittedTypes;
+    @Getter
+    private final List<ParticleInfo> permittedParticles;
+    private final Set<Particle> permittedParticleTypes;
+
+    public boolean isExpired(){
+        return System.currentTimeMillis() >= expiry;
+    }
+
+    public boolean canUse(PetType type){
+        return permittedTypes.contains(type);
+    }
+
+    public boolean canUse(Particle particle){
+        return permittedParticleTypes.contains(particle);
+    }
+
+    /**
+     * The given types the player may use, in their original order.
+     */
+    public List<PetType> filterTypes(List<PetType> types){
+        List<PetType> permitted = new ArrayList<>(Math.min(types.size(), permittedTypes.size()));
+        for (PetType type : types) {
+            if(permittedTypes.contains(type))
+                permitted.add(type);
+        }
+
+        return permitted;
+    }
+
+}
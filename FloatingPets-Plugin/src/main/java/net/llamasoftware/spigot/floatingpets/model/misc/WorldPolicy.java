@@ -0,0 +1,25 @@
+package net.llamasoftware.spigot.floatingpets.model.misc;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * What pets may do in one world, resolved from the configuration once per world.
+ */
+@Builder
+public class WorldPolicy {
+
+    @Getter
+    private final boolean enabled;
+    @Getter
+    private final int maxPetsPerPlayer;
+    @Getter
+    private final int maxPetsPerChunk;
+    @Getter
+    private final boolean particles;
+    @Getter
+    private final boolean animations;
+    @Getter
+    private final int tickRate;
+
+}
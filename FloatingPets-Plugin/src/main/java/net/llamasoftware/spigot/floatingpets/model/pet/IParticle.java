@@ -44,6 +44,9 @@ public class IParticle implements Particle {
                 return;
             }
 
+            if(!plugin.getWorldPolicyManager().getPolicy(pet.getNameTag().getWorld()).isParticles())
+                return;
+
             Bukkit.getOnlinePlayers().stream()
                     .filter(Objects::nonNull)
                     .filter(player -> player.canSee(pet.getOnlineOwner()))
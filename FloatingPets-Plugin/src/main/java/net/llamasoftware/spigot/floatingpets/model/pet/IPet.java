@@ -21,8 +21,8 @@ public class IPet implements Pet {
     private String name;
     @Getter
     private final UUID owner;
-    @Getter
-    private final PetType type;
+    @Getter @Setter
+    private PetType type;
     @Getter
     private final List<Skill> skills;
     @Getter @Setter
@@ -0,0 +1,61 @@
+package net.llamasoftware.spigot.floatingpets.model.pet;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import net.llamasoftware.spigot.floatingpets.api.model.Pet;
+import net.llamasoftware.spigot.floatingpets.util.Utility;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, storage friendly copy of a {@link Pet}.
+ * Taken on the main thread so it can safely be written from the storage thread.
+ */
+@Builder
+@EqualsAndHashCode
+public class PetRecord {
+
+    @Getter
+    private final UUID uniqueId;
+    @Getter
+    private final UUID owner;
+    @Getter
+    private final UUID type;
+    @Getter
+    private final String name;
+    @Getter
+    private final List<String> skills;
+    @Getter
+    private final String particle;
+    @Getter
+    private final int particleSpeed;
+    @Getter
+    private final Map<String, Object> extra;
+
+    public boolean hasParticle(){
+        return particle != null;
+    }
+
+    public static PetRecord of(Pet pet){
+        PetRecordBuilder builder = PetRecord.builder()
+                .uniqueId(pet.getUniqueId())
+                .owner(pet.getOwner())
+                .type(pet.getType().getUniqueId())
+                .name(pet.getName())
+                .skills(pet.getSkills() == null ? Collections.emptyList() : pet.getSkills().stream()
+                        .filter(Objects::nonNull)
+                        .map(Utility::serializeSkill)
+                        .collect(Collectors.toList()))
+                .extra(pet.getExtra() == null ? Collections.emptyMap() : new HashMap<>(pet.getExtra()));
+
+        if(pet.hasParticle()){
+            builder.particle(pet.getParticle().getParticle().name())
+                    .particleSpeed(pet.getParticle().getSpeed());
+        }
+
+        return builder.build();
+    }
+
+}
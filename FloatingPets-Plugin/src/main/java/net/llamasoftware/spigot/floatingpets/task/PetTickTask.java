@@ -4,6 +4,7 @@ import net.llamasoftware.spigot.floatingpets.FloatingPets;
 import net.llamasoftware.spigot.floatingpets.api.model.Pet;
 import net.llamasoftware.spigot.floatingpets.api.model.PetAnimation;
 import net.llamasoftware.spigot.floatingpets.api.model.Skill;
+import net.llamasoftware.spigot.floatingpets.model.misc.WorldPolicy;
 import org.bukkit.entity.ArmorStand;
 import org.bukkit.entity.Player;
 
@@ -17,6 +18,7 @@ public class PetTickTask implements Runnable {
 
     private String lastTitle;
     private double lastHealth;
+    private int skipped;
 
     public PetTickTask(FloatingPets plugin, Pet pet){
         this.plugin     = plugin;
@@ -31,9 +33,18 @@ public class PetTickTask implements Runnable {
         if(pet == null || pet.getEntity() == null)
             return;
 
+        // Following the owner runs every tick, the tick rate only slows down cosmetic work
         tickMovement();
-        tickAnimation();
         tickAutomaticHat();
+
+        WorldPolicy policy = plugin.getWorldPolicyManager().getPolicy(pet.getEntity().getEntity().getWorld());
+        if(++skipped < policy.getTickRate())
+            return;
+
+        skipped = 0;
+
+        if(policy.isAnimations())
+            tickAnimation();
         tickChangeUpdate();
         tickBeaconSkill();
     }
@@ -87,7 +98,7 @@ public class PetTickTask implements Runnable {
                 lastTitle = pet.getName();
 
             pet.getNameTag().setCustomName(plugin.getUtility().formatTitle(pet,
-                    owner.hasPermission("floatingpets.name.color")));
+                    plugin.getPermissionManager().getSnapshot(owner).isColoredNames()));
         }
     }
 
@@ -15,13 +15,16 @@ import net.llamasoftware.spigot.floatingpets.model.skill.StorageSkill;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 
+import java.nio.ByteBuffer;
 import java.text.DecimalFormat;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 public final class Utility {
 
@@ -65,7 +68,7 @@ public final class Utility {
 
     public Integer[] parsePetId(Player player, String command, String[] arguments, boolean spawned, boolean... longer){
         boolean ln = (longer != null && longer.length > 0) && longer[0];
-        LinkedList<Pet> pets = spawned ?
+        List<Pet> pets = spawned ?
                 plugin.getPetManager().getPetsByOwner(player) :
                 plugin.getStorageManager().getPetsByOwner(player.getUniqueId());
 
@@ -79,7 +82,7 @@ public final class Utility {
                 MenuPetSpecification menu = new MenuPetSpecification(plugin.getStorageManager()
                         .getLocaleByKey("menus.specification.title"), pets);
 
-                menu.setData("coloredNames", player.hasPermission("floatingpets.name.color"));
+                menu.setData("coloredNames", plugin.getPermissionManager().getSnapshot(player).isColoredNames());
                 menu.setData("command", Constants.PET_COMMAND_NAME + " " + command);
                 menu.setData("args", arguments);
 
@@ -92,9 +95,16 @@ public final class Utility {
     }
 
     public ItemBuilder getPetDisplayItem(PetType type){
+        return getPetDisplayItem(type, null);
+    }
+
+    /**
+     * Display item with its name in the language of the given viewer.
+     */
+    public ItemBuilder getPetDisplayItem(PetType type, CommandSender viewer){
         ItemBuilder petItemBuilder = new ItemBuilder(plugin.getNmsHelper()
                 .getItemStackFromTexture(type.getTexture()))
-                .name(plugin.getLocale().getText("selector.name",
+                .name(plugin.getLocale().getText(viewer, "selector.name",
                         new Locale.Placeholder("type", type.getName())));
 
         if(plugin.isSetting(Setting.PET_SHOP_ENABLED)) {
@@ -149,6 +159,18 @@ public final class Utility {
         return limit;
     }
 
+    public static byte[] serializeUniqueId(UUID uniqueId){
+        return ByteBuffer.allocate(16)
+                .putLong(uniqueId.getMostSignificantBits())
+                .putLong(uniqueId.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID deserializeUniqueId(byte[] bytes){
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
     public static String serializeSkill(Skill skill){
         Skill.Type type = skill.getType();
         int level       = skill.getLevel();
@@ -6,7 +6,7 @@ import com.mojang.datafixers.DataFixUtils;
 import com.mojang.datafixers.types.Type;
 import net.llamasoftware.spigot.floatingpets.api.model.FloatingPet;
 import net.llamasoftware.spigot.floatingpets.api.model.Pet;
-import net.llamasoftware.spigot.floatingpets.api.model.Setting;
+import net.llamasoftware.spigot.floatingpets.api.model.LiveSettings;
 import net.llamasoftware.spigot.floatingpets.api.nms.NMSManager;
 import net.llamasoftware.spigot.floatingpets.nms.v1_15_R1.pet.FloatingPet_v1_15_R1;
 import net.minecraft.server.v1_15_R1.*;
@@ -45,7 +45,7 @@ public class NMSManagerImpl implements NMSManager {
     }
 
     @Override
-    public FloatingPet constructPet(Location location, Player onlineOwner, Pet pet, Map<Setting, String> settings) {
+    public FloatingPet constructPet(Location location, Player onlineOwner, Pet pet, LiveSettings settings) {
         World world = location.getWorld();
         if(world == null)
             return null;
@@ -33,7 +33,7 @@ public class PathfinderGoalFollowOwner extends PathfinderGoal {
         if(pet.isSetting(Setting.PET_TELEPORTATION_DISTANCE)
                 && inSameWorld()
                 && (this.owner.getLocation().distance(this.entity.getBukkitEntity().getLocation())
-                >= Double.parseDouble(pet.getSetting(Setting.PET_TELEPORTATION_DISTANCE_DISTANCE)))) {
+                >= pet.getSettings().getDouble(Setting.PET_TELEPORTATION_DISTANCE_DISTANCE))) {
 
             this.entity.setLocation(owner.getLocation().getX(), owner.getLocation().getY(), owner.getLocation().getZ(),
                     owner.getLocation().getYaw(), owner.getLocation().getPitch());
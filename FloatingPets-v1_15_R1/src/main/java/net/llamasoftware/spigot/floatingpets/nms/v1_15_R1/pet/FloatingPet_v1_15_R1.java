@@ -1,6 +1,7 @@
 package net.llamasoftware.spigot.floatingpets.nms.v1_15_R1.pet;
 
 import net.llamasoftware.spigot.floatingpets.api.model.FloatingPet;
+import net.llamasoftware.spigot.floatingpets.api.model.LiveSettings;
 import net.llamasoftware.spigot.floatingpets.api.model.Pet;
 import net.llamasoftware.spigot.floatingpets.api.model.Setting;
 import net.minecraft.server.v1_15_R1.*;
@@ -24,14 +25,14 @@ public class FloatingPet_v1_15_R1 extends EntityCat implements FloatingPet {
     private Pet pet;
     private Location location;
     private Player onlineOwner;
-    private Map<Setting, String> settings;
+    private LiveSettings settings;
 
     @SuppressWarnings({"unused", "rawtypes"})
     public FloatingPet_v1_15_R1(EntityTypes types, World world) {
         super(EntityTypes.CAT, world);
     }
 
-    public void construct(Location location, Player onlineOwner, Pet pet, Map<Setting, String> settings){
+    public void construct(Location location, Player onlineOwner, Pet pet, LiveSettings settings){
         this.location    = location;
         this.onlineOwner = onlineOwner;
         this.pet         = pet;
@@ -151,14 +152,19 @@ public class FloatingPet_v1_15_R1 extends EntityCat implements FloatingPet {
         return getHealth();
     }
 
+    @Override
+    public LiveSettings getSettings() {
+        return settings;
+    }
+
     @Override
     public String getSetting(Setting setting) {
-        return settings.get(setting);
+        return settings.getString(setting);
     }
 
     @Override
     public boolean isSetting(Setting setting) {
-        return Boolean.parseBoolean(getSetting(setting));
+        return settings.isEnabled(setting);
     }
 
     @Override